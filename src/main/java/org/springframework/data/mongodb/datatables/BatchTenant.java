@@ -0,0 +1,49 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.util.function.Supplier;
+
+/**
+ * Hands the tenant resolved on the calling thread of a batch (see {@link DataTablesBatchExecutor}) over to the threads
+ * its requests run on, as a {@link DataTablesTenantResolver} usually depends on the thread of the request (e.g. on
+ * the security context).
+ * <p>
+ * Within a batch, the draws use the handed over tenant and never call the resolver themselves.
+ */
+final class BatchTenant {
+
+    private static final ThreadLocal<BatchTenant> CURRENT = new ThreadLocal<>();
+
+    private final Object tenant;
+
+    /**
+     * @param tenant the tenant resolved on the calling thread, may be null
+     */
+    BatchTenant(Object tenant) {
+        this.tenant = tenant;
+    }
+
+    /**
+     * Runs the task with the tenant of this batch.
+     */
+    <V> V run(Supplier<V> task) {
+        BatchTenant previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the tenant of the batch of the current thread, or the tenant resolved by the resolver outside of a batch
+     */
+    static Object resolve(DataTablesTenantResolver tenantResolver) {
+        BatchTenant batch = CURRENT.get();
+        return batch != null ? batch.tenant : tenantResolver.resolveTenant();
+    }
+}
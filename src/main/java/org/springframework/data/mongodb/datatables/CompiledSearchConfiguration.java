@@ -0,0 +1,209 @@
+package org.springframework.data.mongodb.datatables;
+
+import com.mongodb.ReadPreference;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.aggregation.Fields;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Immutable form of a {@link DataTablesInput.SearchConfiguration} for a domain type, which is read by
+ * {@link DataTablesCriteria} without side effects.
+ * <p>
+ * The column configurations are copied, so that later changes to the {@link DataTablesInput.SearchConfiguration} do
+ * not affect the compiled form, which can thus be shared between threads.
+ */
+final class CompiledSearchConfiguration {
+
+    private static final Set<DataTablesInput.SearchType> VALUE_TYPES = EnumSet.of(DataTablesInput.SearchType.String,
+            DataTablesInput.SearchType.Boolean, DataTablesInput.SearchType.Integer, DataTablesInput.SearchType.Long,
+            DataTablesInput.SearchType.Double, DataTablesInput.SearchType.Decimal128, DataTablesInput.SearchType.ObjectId,
+            DataTablesInput.SearchType.UUID);
+    private static final Collation CASE_INSENSITIVE_COLLATION = Collation.of("en").strength(Collation.ComparisonLevel.secondary());
+
+    private final Map<String, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration> columnSearchConfiguration;
+    private final Set<String> excludedColumns;
+    private final int referenceKeyLimit;
+    private final Collation collation;
+    private final boolean caseInsensitiveColumns;
+    private final Fields allClassFields;
+    private final String idField;
+    private final ReadPreference readPreference;
+    private final ReadPreference countReadPreference;
+
+    private CompiledSearchConfiguration(DataTablesInput.SearchConfiguration searchConfiguration, Class<?> classType) {
+        excludedColumns = Collections.unmodifiableSet(new HashSet<>(searchConfiguration.getExcludedColumns()));
+        referenceKeyLimit = searchConfiguration.getReferenceKeyLimit();
+        idField = getDeclaredIdField(classType);
+        allClassFields = getFields(classType, excludedColumns);
+
+        Map<String, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration> columns = new HashMap<>();
+        searchConfiguration.getColumnSearchConfiguration().forEach((data, config) -> {
+            if (config != null && !excludedColumns.contains(data)) {
+                validate(data, config);
+                columns.put(data, config.copy());
+            }
+        });
+        // the id column is queried as "_id"
+        if (hasText(idField) && columns.containsKey(idField)) {
+            columns.put("_id", columns.remove(idField));
+        }
+        columnSearchConfiguration = Collections.unmodifiableMap(columns);
+
+        collation = searchConfiguration.getCollation();
+        caseInsensitiveColumns = columns.values().stream()
+                .anyMatch(CompiledSearchConfiguration::isCaseInsensitive);
+        readPreference = searchConfiguration.getReadPreference();
+        countReadPreference = searchConfiguration.getCountReadPreference();
+    }
+
+    /**
+     * @param searchConfiguration the configuration to compile, may be null
+     * @param classType           the domain type the configuration is applied to
+     * @return the compiled configuration
+     * @throws IllegalArgumentException if a column configuration is invalid
+     */
+    static CompiledSearchConfiguration of(DataTablesInput.SearchConfiguration searchConfiguration, Class<?> classType) {
+        if (searchConfiguration == null) {
+            DataTablesInput.SearchConfiguration emptyConfiguration = new DataTablesInput.SearchConfiguration();
+            emptyConfiguration.setReferenceKeyLimit(0);
+            return new CompiledSearchConfiguration(emptyConfiguration, classType);
+        }
+        return new CompiledSearchConfiguration(searchConfiguration, classType);
+    }
+
+    /**
+     * @return the configurations by column, without the excluded columns, and with the id column as "_id"
+     */
+    Map<String, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration> getColumnSearchConfiguration() {
+        return columnSearchConfiguration;
+    }
+
+    Set<String> getExcludedColumns() {
+        return excludedColumns;
+    }
+
+    int getReferenceKeyLimit() {
+        return referenceKeyLimit;
+    }
+
+    /**
+     * The configured collation applies to every draw. Without one, the case-insensitive collation only applies to the
+     * draws which search an {@link DataTablesInput.SearchType#EqualsIgnoreCase} column, so that the other draws keep
+     * the simple collation of the indexes.
+     *
+     * @return the collation of the aggregation (and thus the filtered count) of the draw, may be null
+     */
+    Collation getCollation(DataTablesInput input) {
+        if (collation != null || !caseInsensitiveColumns) {
+            return collation;
+        }
+
+        boolean globalSearch = input.getSearch() != null && hasText(input.getSearch().getValue());
+        for (DataTablesInput.Column column : input.getColumns()) {
+            String data = hasText(idField) && idField.equals(column.getData()) ? "_id" : column.getData();
+            DataTablesInput.SearchConfiguration.ColumnSearchConfiguration config = columnSearchConfiguration.get(data);
+            if (config != null && isCaseInsensitive(config) && column.isSearchable()
+                    && (globalSearch || column.getSearch() != null && hasText(column.getSearch().getValue()))) {
+                return CASE_INSENSITIVE_COLLATION;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the read preference of the data, may be null
+     */
+    ReadPreference getReadPreference() {
+        return readPreference;
+    }
+
+    /**
+     * @return the read preference of the counts, may be null
+     */
+    ReadPreference getCountReadPreference() {
+        return countReadPreference;
+    }
+
+    /**
+     * @return the fields of the domain type, without the excluded columns
+     */
+    Fields getAllClassFields() {
+        return allClassFields;
+    }
+
+    /**
+     * @return the name of the field annotated with {@link Id}, may be null
+     */
+    String getIdField() {
+        return idField;
+    }
+
+    private static boolean isCaseInsensitive(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration config) {
+        return !config.isReference() && config.getSearchType() == DataTablesInput.SearchType.EqualsIgnoreCase;
+    }
+
+    private static void validate(String data, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration config) {
+        if (config.isReference() && !hasText(config.getReferenceCollection())) {
+            throw new IllegalArgumentException("The reference column '" + data + "' has no reference collection.");
+        }
+        if (config.isReference() && (config.getReferenceColumns() == null || config.getReferenceColumns().isEmpty())) {
+            throw new IllegalArgumentException("The reference column '" + data + "' has no reference columns.");
+        }
+        if (config.getSearchType() == null) {
+            throw new IllegalArgumentException("The column '" + data + "' has no search type.");
+        }
+        if (config.getSearchType() == DataTablesInput.SearchType.In && !VALUE_TYPES.contains(config.getValueType())) {
+            throw new IllegalArgumentException("Search type " + config.getValueType() + " of column '" + data + "' is not supported as value type.");
+        }
+    }
+
+    /**
+     * Use official getFields method to list all fields of the class.
+     * Source: https://github.com/spring-projects/spring-data-mongodb/blob/1a5de2e1db939f7b35579f11815894fd637fc227/spring-data-mongodb/src/main/java/org/springframework/data/mongodb/core/aggregation/AggregationOperationContext.java#L88
+     *
+     * @return Class fields
+     */
+    private static Fields getFields(Class<?> type, Set<String> excludedColumns) {
+
+        return Fields.fields(Arrays.stream(BeanUtils.getPropertyDescriptors(type))
+                .filter(it -> {
+                    Method method = it.getReadMethod();
+                    if (method == null) {
+                        return false;
+                    }
+                    if (ReflectionUtils.isObjectMethod(method)) {
+                        return false;
+                    }
+
+                    if (excludedColumns.contains(it.getName())) {
+                        return false;
+                    }
+
+                    return !method.isDefault();
+                })
+                .map(PropertyDescriptor::getName)
+                .toArray(String[]::new));
+    }
+
+    private static String getDeclaredIdField(Class<?> classType) {
+        return Arrays.stream(classType.getDeclaredFields())
+                .filter(f -> f.isAnnotationPresent(Id.class))
+                .map(java.lang.reflect.Field::getName)
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,109 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Converts the results of a query while they are read from the cursor: the results are collected in batches, and
+ * each full batch is converted on the {@link DataTablesConversionExecutor} (or directly, if there is none).
+ *
+ * @param <S> the read type
+ * @param <R> the converted type
+ */
+final class ConversionPipeline<S, R> {
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final Function<S, R> converter;
+    private final DataTablesConversionExecutor conversionExecutor;
+    private final int batchSize;
+
+    private final List<CompletableFuture<List<R>>> convertedBatches = new ArrayList<>();
+    private List<S> batch;
+
+    /**
+     * @param converter          the converter, or null to return the results as they are read
+     * @param conversionExecutor the executor to convert the batches on, may be null
+     */
+    ConversionPipeline(Function<S, R> converter, DataTablesConversionExecutor conversionExecutor) {
+        this.converter = converter;
+        this.conversionExecutor = conversionExecutor;
+        this.batchSize = conversionExecutor != null ? conversionExecutor.getBatchSize() : DEFAULT_BATCH_SIZE;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    void add(S result) {
+        batch.add(result);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Adds all results, e.g. read at once. Without a converter, the list itself is returned by {@link #finish()}.
+     */
+    void addAll(List<S> results) {
+        if (converter == null && batch.isEmpty()) {
+            batch = results;
+            return;
+        }
+        results.forEach(this::add);
+    }
+
+    /**
+     * Waits for the conversion of all batches.
+     *
+     * @return the converted results, in the order they were added
+     */
+    // without a converter, the read type S is the result type R, see DataTablesRepositoryImpl
+    @SuppressWarnings("unchecked")
+    List<R> finish() {
+        if (converter == null) {
+            return (List<R>) batch;
+        }
+
+        // the last batch is converted on the calling thread, which has to wait for the others anyway
+        List<R> lastBatch = convert(batch);
+
+        List<R> results = new ArrayList<>(convertedBatches.size() * batchSize + lastBatch.size());
+        try {
+            for (CompletableFuture<List<R>> convertedBatch : convertedBatches) {
+                results.addAll(convertedBatch.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        results.addAll(lastBatch);
+        return results;
+    }
+
+    private void flush() {
+        if (converter == null) {
+            // all results are returned as one list
+            return;
+        }
+
+        List<S> fullBatch = batch;
+        batch = new ArrayList<>(batchSize);
+
+        if (conversionExecutor != null) {
+            convertedBatches.add(CompletableFuture.supplyAsync(() -> convert(fullBatch), conversionExecutor.getExecutor()));
+        } else {
+            convertedBatches.add(CompletableFuture.completedFuture(convert(fullBatch)));
+        }
+    }
+
+    private List<R> convert(List<S> results) {
+        List<R> converted = new ArrayList<>(results.size());
+        for (S result : results) {
+            converted.add(converter.apply(result));
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,109 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Executes the requests of several tables at once, e.g. of all tables of a dashboard, concurrently on the given
+ * {@link Executor}.
+ * <p>
+ * The total count of requests on the same collection with the same pre-filtering criteria is computed only once.
+ * <p>
+ * The requests on tenant-scoped domain types (see {@link DataTablesTenantResolver}) need the resolver to be passed
+ * here: the tenant is resolved once on the calling thread and handed over to the requests, which otherwise fail.
+ */
+public class DataTablesBatchExecutor {
+
+    private final Executor executor;
+    private final DataTablesTenantResolver tenantResolver;
+
+    /**
+     * @param executor the {@link Executor} the requests are run on, should allow as many concurrent tasks as the
+     *                 MongoDB connection pool can serve
+     */
+    public DataTablesBatchExecutor(Executor executor) {
+        this(executor, null);
+    }
+
+    /**
+     * @param executor       the {@link Executor} the requests are run on, should allow as many concurrent tasks as the
+     *                       MongoDB connection pool can serve
+     * @param tenantResolver the resolver of the tenant of the requests, which is called on the calling thread of
+     *                       {@link #execute(List)}, may be null
+     */
+    public DataTablesBatchExecutor(Executor executor, DataTablesTenantResolver tenantResolver) {
+        this.executor = executor;
+        this.tenantResolver = tenantResolver;
+    }
+
+    /**
+     * Creates a request of a batch.
+     *
+     * @param repository the repository of the table
+     * @param input      the {@link DataTablesInput} mapped from the Ajax request
+     * @param <T>        the entity type
+     * @return a {@link Request}
+     */
+    public static <T> Request<T> request(DataTablesRepository<T, ?> repository, DataTablesInput input) {
+        return new Request<>(repository, input, null, null);
+    }
+
+    /**
+     * Creates a request of a batch.
+     *
+     * @param repository           the repository of the table
+     * @param input                the {@link DataTablesInput} mapped from the Ajax request
+     * @param additionalCriteria   an additional {@link Criteria} to apply to the query (with an "AND" clause)
+     * @param preFilteringCriteria a pre-filtering {@link Criteria} to apply to the query (with an "AND" clause)
+     * @param <T>                  the entity type
+     * @return a {@link Request}
+     */
+    public static <T> Request<T> request(DataTablesRepository<T, ?> repository, DataTablesInput input,
+                                         Criteria additionalCriteria, Criteria preFilteringCriteria) {
+        return new Request<>(repository, input, additionalCriteria, preFilteringCriteria);
+    }
+
+    /**
+     * Executes the requests and waits for all of them to complete.
+     *
+     * @param requests the requests to execute
+     * @return the {@link DataTablesOutput} of each request, in the order of the requests
+     */
+    public List<DataTablesOutput<?>> execute(List<Request<?>> requests) {
+        SharedCounts sharedCounts = new SharedCounts();
+        // the threads of the executor do not know the tenant of the calling thread
+        BatchTenant batchTenant = new BatchTenant(tenantResolver != null ? tenantResolver.resolveTenant() : null);
+
+        List<CompletableFuture<DataTablesOutput<?>>> outputs = new ArrayList<>(requests.size());
+        for (Request<?> request : requests) {
+            outputs.add(CompletableFuture.supplyAsync(() -> batchTenant.run(() -> sharedCounts.<DataTablesOutput<?>>run(request::execute)), executor));
+        }
+
+        return outputs.stream().map(CompletableFuture::join).collect(toList());
+    }
+
+    public static final class Request<T> {
+        private final DataTablesRepository<T, ?> repository;
+        private final DataTablesInput input;
+        private final Criteria additionalCriteria;
+        private final Criteria preFilteringCriteria;
+
+        private Request(DataTablesRepository<T, ?> repository, DataTablesInput input, Criteria additionalCriteria,
+                        Criteria preFilteringCriteria) {
+            this.repository = repository;
+            this.input = input;
+            this.additionalCriteria = additionalCriteria;
+            this.preFilteringCriteria = preFilteringCriteria;
+        }
+
+        private DataTablesOutput<T> execute() {
+            return repository.findAll(input, additionalCriteria, preFilteringCriteria);
+        }
+    }
+}
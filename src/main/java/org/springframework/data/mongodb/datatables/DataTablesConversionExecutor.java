@@ -0,0 +1,37 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Converts the results of a page in batches on the given {@link Executor}, e.g. for CPU-heavy converters passed to
+ * {@link DataTablesRepository#findAll(DataTablesInput, java.util.function.Function)} on large pages. The order of the
+ * results is preserved.
+ * <p>
+ * Register it as a bean to enable parallel conversion. Without it, the results are converted on the calling thread
+ * while they are read from the cursor.
+ */
+public class DataTablesConversionExecutor {
+
+    private final Executor executor;
+    private final int batchSize;
+
+    /**
+     * @param executor  the {@link Executor} the batches are converted on
+     * @param batchSize the number of results per batch, e.g. the cursor batch size
+     */
+    public DataTablesConversionExecutor(Executor executor, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+}
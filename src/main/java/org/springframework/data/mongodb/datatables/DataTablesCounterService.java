@@ -0,0 +1,344 @@
+package org.springframework.data.mongodb.datatables;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the total counts of collections (per pre-filtering criteria) up to date from a change stream, so that they do
+ * not have to be counted on every draw. Requires a replica set.
+ * <p>
+ * Register it as a bean to enable it for all {@link DataTablesRepository DataTablesRepositories}. A count is executed
+ * once, and then maintained as follows:
+ * <ul>
+ * <li>without pre-filtering criteria, inserts and deletes are counted</li>
+ * <li>with pre-filtering criteria which only compare fields for equality (like {@code where("status").is("open")}),
+ * inserted documents are matched against them, and updates which do not touch the filtered fields are ignored</li>
+ * </ul>
+ * Any other change (e.g. a delete with pre-filtering criteria) invalidates the count, and it is executed again on the
+ * next draw. So does a change which may have been committed before the count completed, but is delivered after it
+ * (i.e. whose cluster time is not after the operation time of the primary once the count has completed), as the count
+ * may already include it. If the change stream fails, e.g. because its resume token is no longer in the oplog, all counts of the
+ * collection are invalidated and executed on every draw until a new change stream is active, which is retried after a
+ * minute.
+ */
+public class DataTablesCounterService {
+
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final MessageListenerContainer messageListenerContainer;
+    private final Supplier<BsonTimestamp> clusterTime;
+    private final Map<String, Counter> counters;
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+    private final Map<String, Long> failures = new HashMap<>();
+
+    /**
+     * @param mongoOperations          the operations to read the operation time of the primary with
+     * @param messageListenerContainer the running container to register the change stream subscriptions with
+     */
+    public DataTablesCounterService(MongoOperations mongoOperations, MessageListenerContainer messageListenerContainer) {
+        this(mongoOperations, messageListenerContainer, 256);
+    }
+
+    /**
+     * @param mongoOperations          the operations to read the operation time of the primary with
+     * @param messageListenerContainer the running container to register the change stream subscriptions with
+     * @param maxCounters              the maximum number of maintained counts
+     */
+    public DataTablesCounterService(MongoOperations mongoOperations, MessageListenerContainer messageListenerContainer, int maxCounters) {
+        this(messageListenerContainer, maxCounters, () -> getOperationTime(mongoOperations));
+    }
+
+    /**
+     * @param clusterTime reads the current cluster time, or null if it is not known
+     */
+    DataTablesCounterService(MessageListenerContainer messageListenerContainer, int maxCounters, Supplier<BsonTimestamp> clusterTime) {
+        this.messageListenerContainer = messageListenerContainer;
+        this.clusterTime = clusterTime;
+        this.counters = new LinkedHashMap<String, Counter>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Counter> eldest) {
+                return size() > maxCounters;
+            }
+        };
+    }
+
+    /**
+     * Invalidates all counts of the collection, e.g. after it has been modified with change streams disabled.
+     */
+    public void invalidate(String collection) {
+        for (Counter counter : getCounters(collection)) {
+            counter.invalidate();
+        }
+    }
+
+    /**
+     * @param collection           the counted collection
+     * @param preFilteringCriteria the criteria of the count, may be null
+     * @param exactCounter         executes the count
+     * @return the maintained count, or the result of the exact counter if there is none
+     */
+    long count(String collection, Criteria preFilteringCriteria, Supplier<Long> exactCounter) {
+        if (!watch(collection)) {
+            return exactCounter.get();
+        }
+
+        String criteriaKey = SharedCounts.criteriaKey(preFilteringCriteria);
+        if (criteriaKey == null) {
+            return exactCounter.get();
+        }
+
+        String key = collection + ":" + criteriaKey;
+        Counter counter;
+        synchronized (counters) {
+            counter = counters.computeIfAbsent(key, k -> new Counter(collection,
+                    preFilteringCriteria != null ? preFilteringCriteria.getCriteriaObject() : new Document()));
+        }
+        return counter.get(exactCounter, clusterTime);
+    }
+
+    /**
+     * @return the operation time of a command on the primary, or null if it has none (e.g. on a standalone server)
+     */
+    private static BsonTimestamp getOperationTime(MongoOperations mongoOperations) {
+        Object operationTime = mongoOperations.executeCommand(new Document("ping", 1)).get("operationTime");
+        return operationTime instanceof BsonTimestamp ? (BsonTimestamp) operationTime : null;
+    }
+
+    /**
+     * @return true if there is an active change stream for the collection
+     */
+    private boolean watch(String collection) {
+        Subscription subscription;
+        synchronized (subscriptions) {
+            subscription = subscriptions.get(collection);
+            if (subscription == null) {
+                Long failedAt = failures.get(collection);
+                if (failedAt != null && failedAt + RETRY_DELAY.toMillis() > System.currentTimeMillis()) {
+                    return false;
+                }
+
+                ChangeStreamRequest<Document> request = ChangeStreamRequest.<Document>builder(message -> apply(collection, message.getRaw()))
+                        .collection(collection)
+                        .build();
+
+                subscription = messageListenerContainer.register(request, Document.class, error -> unwatch(collection));
+                subscriptions.put(collection, subscription);
+            }
+        }
+
+        // changes before the stream is active are not seen, so the counts are not maintained until then
+        return subscription.isActive();
+    }
+
+    /**
+     * Drops the failed change stream, so that a new one is opened on a later count.
+     */
+    private void unwatch(String collection) {
+        Subscription subscription;
+        synchronized (subscriptions) {
+            subscription = subscriptions.remove(collection);
+            failures.put(collection, System.currentTimeMillis());
+        }
+        if (subscription != null) {
+            messageListenerContainer.remove(subscription);
+        }
+        invalidate(collection);
+    }
+
+    private void apply(String collection, ChangeStreamDocument<Document> change) {
+        if (change == null) {
+            return;
+        }
+        for (Counter counter : getCounters(collection)) {
+            counter.apply(change);
+        }
+    }
+
+    private List<Counter> getCounters(String collection) {
+        List<Counter> collectionCounters = new ArrayList<>();
+        synchronized (counters) {
+            for (Counter counter : counters.values()) {
+                if (counter.collection.equals(collection)) {
+                    collectionCounters.add(counter);
+                }
+            }
+        }
+        return collectionCounters;
+    }
+
+    private static final class Counter {
+        private final String collection;
+        private final Document filter;
+        private final boolean matchable;
+
+        private Long count;
+        /**
+         * The cluster time after the count completed. Changes up to this time may be included in the count or not.
+         */
+        private BsonTimestamp countedAt;
+        /**
+         * Incremented on every change, so that a count which ran concurrently to a change is not kept.
+         */
+        private long generation;
+
+        private Counter(String collection, Document filter) {
+            this.collection = collection;
+            this.filter = filter;
+            this.matchable = isEqualityFilter(filter);
+        }
+
+        long get(Supplier<Long> exactCounter, Supplier<BsonTimestamp> clusterTime) {
+            long countedGeneration;
+            synchronized (this) {
+                if (count != null) {
+                    return count;
+                }
+                countedGeneration = generation;
+            }
+
+            long exactCount = exactCounter.get();
+            BsonTimestamp completedAt = clusterTime.get();
+            synchronized (this) {
+                if (generation == countedGeneration && completedAt != null) {
+                    count = exactCount;
+                    countedAt = completedAt;
+                }
+            }
+            return exactCount;
+        }
+
+        synchronized void invalidate() {
+            generation++;
+            count = null;
+        }
+
+        synchronized void apply(ChangeStreamDocument<Document> change) {
+            generation++;
+            if (count == null || change.getOperationType() == null) {
+                return;
+            }
+            if (change.getClusterTime() == null || change.getClusterTime().compareTo(countedAt) <= 0) {
+                // the count may or may not include the change
+                count = null;
+                return;
+            }
+
+            switch (change.getOperationType()) {
+                case INSERT:
+                    if (filter.isEmpty()) {
+                        count++;
+                    } else if (matchable && change.getFullDocument() != null) {
+                        if (matches(change.getFullDocument())) {
+                            count++;
+                        }
+                    } else {
+                        count = null;
+                    }
+                    break;
+                case DELETE:
+                    if (filter.isEmpty()) {
+                        count--;
+                    } else {
+                        count = null;
+                    }
+                    break;
+                case UPDATE:
+                    if (!filter.isEmpty() && (!matchable || touchesFilter(change.getUpdateDescription()))) {
+                        count = null;
+                    }
+                    break;
+                case REPLACE:
+                    if (!filter.isEmpty()) {
+                        count = null;
+                    }
+                    break;
+                default:
+                    // drop, rename, invalidate
+                    count = null;
+            }
+        }
+
+        private boolean matches(Document document) {
+            for (Map.Entry<String, Object> condition : filter.entrySet()) {
+                if (!valueEquals(getValue(document, condition.getKey()), condition.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean touchesFilter(UpdateDescription updateDescription) {
+            if (updateDescription == null) {
+                return true;
+            }
+
+            List<String> changedFields = new ArrayList<>();
+            if (updateDescription.getUpdatedFields() != null) {
+                changedFields.addAll(updateDescription.getUpdatedFields().keySet());
+            }
+            if (updateDescription.getRemovedFields() != null) {
+                changedFields.addAll(updateDescription.getRemovedFields());
+            }
+            return changedFields.stream().anyMatch(changedField -> filter.keySet().stream().anyMatch(filteredField ->
+                    changedField.equals(filteredField)
+                            || changedField.startsWith(filteredField + ".")
+                            || filteredField.startsWith(changedField + ".")));
+        }
+    }
+
+    /**
+     * @return true if the filter only compares fields to strings, numbers, booleans or object ids
+     */
+    private static boolean isEqualityFilter(Document filter) {
+        return filter.entrySet().stream().allMatch(condition -> !condition.getKey().startsWith("$")
+                && (condition.getValue() instanceof String || condition.getValue() instanceof Number
+                || condition.getValue() instanceof Boolean || condition.getValue() instanceof ObjectId));
+    }
+
+    private static Object getValue(Document document, String path) {
+        Object value = document;
+        for (String key : path.split("\\.")) {
+            if (!(value instanceof Document)) {
+                return null;
+            }
+            value = ((Document) value).get(key);
+        }
+        return value;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean valueEquals(Object value, Object expected) {
+        if (value instanceof Collection) {
+            // an array field matches if one of its elements matches
+            return ((Collection<?>) value).stream().anyMatch(element -> valueEquals(element, expected));
+        }
+        if (value instanceof Number && expected instanceof Number) {
+            return isIntegral(value) && isIntegral(expected)
+                    ? ((Number) value).longValue() == ((Number) expected).longValue()
+                    : ((Number) value).doubleValue() == ((Number) expected).doubleValue();
+        }
+        return expected.equals(value);
+    }
+}
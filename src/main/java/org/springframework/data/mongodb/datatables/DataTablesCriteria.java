@@ -1,29 +1,44 @@
 package org.springframework.data.mongodb.datatables;
 
-import org.springframework.beans.BeanUtils;
-import org.springframework.data.annotation.Id;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
 import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
 import org.springframework.data.mongodb.core.aggregation.DateOperators;
 import org.springframework.data.mongodb.core.aggregation.Fields;
 import org.springframework.data.mongodb.core.aggregation.LookupOperation;
 import org.springframework.data.mongodb.core.aggregation.MatchOperation;
 import org.springframework.data.mongodb.core.aggregation.ObjectOperators;
 import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Collation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 import static java.util.stream.Collectors.toList;
 import static org.springframework.data.domain.Sort.by;
@@ -32,119 +47,279 @@ import static org.springframework.util.ObjectUtils.isEmpty;
 import static org.springframework.util.StringUtils.hasText;
 
 final class DataTablesCriteria<T> {
+    private static final Pattern VALUE_SEPARATOR = Pattern.compile("[|,]");
+
     private Map<String, String> resolvedColumn = new HashMap<>();
     private Aggregation aggregation;
+    private List<AggregationOperation> sortedOperations;
+    private AggregationOptions aggregationOptions;
+    private int start;
+    private int length;
     private Aggregation filteredCountAggregation;
+    private boolean filtered;
 
     private Fields allClassFields;
-    private String originalIdField;
 
     private Map<String, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration> columnSearchConfiguration;
-    private List<String> excludedColumns;
+    private Set<String> excludedColumns;
+    private List<DataTablesInput.Column> columns = new ArrayList<>();
+    private List<DataTablesInput.Column> orderColumns = new ArrayList<>();
     private List<String> dateProjectionColumns = new ArrayList<>();
+    private Map<String, String> normalizedColumns;
+    private Map<String, DenormalizedFields.DenormalizedField> denormalizedFields;
 
-    DataTablesCriteria(DataTablesInput input, Criteria additionalCriteria, Criteria preFilteringCriteria, Class<T> classType) {
-        if (input.getSearchConfiguration() != null) {
-            columnSearchConfiguration = input.getSearchConfiguration().getColumnSearchConfiguration();
-            excludedColumns = input.getSearchConfiguration().getExcludedColumns();
-        } else {
-            columnSearchConfiguration = new HashMap<>();
-            excludedColumns = new ArrayList<>();
-        }
+    private Map<String, Map<DataTablesInput.Search, List<Object>>> referenceKeys = new HashMap<>();
+    private Map<String, List<Object>> rankKeys = new HashMap<>();
+    private Set<String> lookupColumns = new HashSet<>();
+    private Set<String> searchLookupColumns = new HashSet<>();
+    private List<AggregationOperation> pageOperations = new ArrayList<>();
+    private Collation collation;
 
-        allClassFields = getFields(classType, excludedColumns);
+    /**
+     * Builds the aggregations for the given input, on documents with the given snapshots of reference fields (e.g. of
+     * a materialized view). Neither the input nor the configuration is modified.
+     *
+     * @param denormalizedFields the snapshots of reference fields by property, which are searched and sorted instead of
+     *                           resolving the references (empty if no snapshots are maintained)
+     * @param mappingContext     resolves the document fields of the normalized copies, or null to search the fields
+     *                           themselves, if the copies are not maintained by a {@link DataTablesSearchableEventListener}
+     */
+    DataTablesCriteria(DataTablesInput input, CompiledSearchConfiguration searchConfiguration, Criteria additionalCriteria,
+                       Criteria preFilteringCriteria, Class<T> classType, ReferenceKeyResolver referenceKeyResolver,
+                       Map<String, DenormalizedFields.DenormalizedField> denormalizedFields,
+                       MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext) {
+        columnSearchConfiguration = searchConfiguration.getColumnSearchConfiguration();
+        excludedColumns = searchConfiguration.getExcludedColumns();
+        allClassFields = searchConfiguration.getAllClassFields();
+        collation = searchConfiguration.getCollation(input);
+        int referenceKeyLimit = searchConfiguration.getReferenceKeyLimit();
+        AggregationOptions aggregationOptions = Aggregation.newAggregationOptions().collation(collation).build();
+
+        // Working copy of the columns: without the excluded columns and with the id column queried as "_id".
+        // The orders refer to the columns by their index in the input, so excluded columns are kept as null there.
+        String idField = searchConfiguration.getIdField();
+        for (DataTablesInput.Column column : input.getColumns()) {
+            if (excludedColumns.contains(column.getData())) {
+                orderColumns.add(null);
+                continue;
+            }
 
-        for (String excludedColumn : excludedColumns) {
-            input.getColumn(excludedColumn).ifPresent(column -> input.getColumns().remove(column));
-            input.getColumnMap().remove(excludedColumn);
-            columnSearchConfiguration.remove(excludedColumn);
+            DataTablesInput.Column workingColumn = hasText(idField) && idField.equals(column.getData()) ? renameColumn(column, "_id") : column;
+            columns.add(workingColumn);
+            orderColumns.add(workingColumn);
         }
 
-        setDeclaredIdField(classType);
-
-        if (!StringUtils.isEmpty(originalIdField)) {
-            input.getColumn(originalIdField).ifPresent(c -> {
-
-                DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = columnSearchConfiguration.get(c.getData());
-                columnSearchConfiguration.remove(c.getData());
+        normalizedColumns = new LinkedHashMap<>();
+        if (mappingContext != null) {
+            columns.stream()
+                    .map(DataTablesInput.Column::getData)
+                    .filter(data -> SearchableFields.isNormalized(classType, data))
+                    .forEach(data -> normalizedColumns.put(data, SearchableFields.normalizedField(mappingContext, classType, data)));
+        }
 
-                c.setData("_id");
-                input.setColumns(input.getColumns());
+        this.denormalizedFields = denormalizedFields;
 
-                columnSearchConfiguration.put(c.getData(), searchConfig);
-            });
-        }
+        resolveReferenceKeys(input, classType, referenceKeyResolver, referenceKeyLimit);
 
         List<AggregationOperation> aggregationOperations = new ArrayList<>();
 
-        if (additionalCriteria != null) aggregationOperations.add(Aggregation.match(additionalCriteria));
-        if (preFilteringCriteria != null) aggregationOperations.add(Aggregation.match(preFilteringCriteria));
+        // The matches on stored fields come first, combined into one predicate, so that they can use an index (and,
+        // on a sharded cluster, run on the shards). Only the matches on computed fields have to wait for the stages
+        // which compute them.
+        List<Criteria> storedMatches = new ArrayList<>();
+        if (additionalCriteria != null) storedMatches.add(additionalCriteria);
+        if (preFilteringCriteria != null) storedMatches.add(preFilteringCriteria);
 
-        // If there is not projection because of references but there are excluded columns,
-        // an extra projection has to be added to exclude these columns
+        List<AggregationOperation> searchResolverOps = new ArrayList<>();
+        List<AggregationOperation> orderResolverOps = new ArrayList<>();
         if (!columnSearchConfiguration.isEmpty()) {
-            aggregationOperations.addAll(addDateResolver(input));
-            List<AggregationOperation> referenceResolverOps = addReferenceResolver(input);
-            aggregationOperations.addAll(referenceResolverOps);
-            if (referenceResolverOps.isEmpty() && !excludedColumns.isEmpty()) {
-                aggregationOperations.add(createFieldProjection(input));
-            }
-        } else if (!excludedColumns.isEmpty()) {
-            aggregationOperations.add(createFieldProjection(input));
+            searchResolverOps.addAll(addDateResolver(input));
+            List<String> columnStrings = getColumnStrings(input);
+            searchResolverOps.addAll(addReferenceResolver(input, columnStrings, searchLookupColumns::contains));
+            orderResolverOps.addAll(addReferenceResolver(input, columnStrings, data -> !searchLookupColumns.contains(data)));
         }
 
-        AggregationOperation globalMatching = addGlobalCriteria(input);
+        List<Criteria> resolvedMatches = new ArrayList<>();
+
+        Criteria globalMatching = addGlobalCriteria(input);
 
         if (globalMatching != null) {
-            aggregationOperations.add(globalMatching);
+            boolean resolved = columns.stream().filter(DataTablesInput.Column::isSearchable).anyMatch(this::isResolvedSearch);
+            (resolved ? resolvedMatches : storedMatches).add(globalMatching);
         }
+        filtered = additionalCriteria != null || globalMatching != null;
 
-        input.getColumns().forEach(column -> {
-            MatchOperation columnCriteriaMatcher = addColumnCriteria(column);
-            if (columnCriteriaMatcher != null) {
-                aggregationOperations.add(columnCriteriaMatcher);
+        for (DataTablesInput.Column column : columns) {
+            Criteria columnCriteria = addColumnCriteria(column);
+            if (columnCriteria != null) {
+                (isResolvedSearch(column) ? resolvedMatches : storedMatches).add(columnCriteria);
+                filtered = true;
             }
-        });
+        }
+
+        if (!storedMatches.isEmpty()) aggregationOperations.add(matchAll(storedMatches));
+        aggregationOperations.addAll(searchResolverOps);
+        if (!resolvedMatches.isEmpty()) aggregationOperations.add(matchAll(resolvedMatches));
 
         List<AggregationOperation> filteredCountOperations = new ArrayList<>(aggregationOperations);
         filteredCountOperations.add(Aggregation.count().as("filtered_count"));
 
-        filteredCountAggregation = Aggregation.newAggregation(filteredCountOperations);
+        filteredCountAggregation = Aggregation.newAggregation(filteredCountOperations).withOptions(aggregationOptions);
 
+        // The joins which are only needed for sorting, and the projection of the excluded columns, are applied after
+        // the matches, and the latter only to the documents of the page
+        aggregationOperations.addAll(orderResolverOps);
         aggregationOperations.addAll(addSort(input));
-        aggregation = Aggregation.newAggregation(aggregationOperations);
+        sortedOperations = new ArrayList<>(aggregationOperations);
+        start = input.getStart();
+        length = input.getLength();
+        this.aggregationOptions = aggregationOptions;
+
+        // The excluded columns are removed by a projection of the page, as not every resolver stage projects the
+        // documents (e.g. the $lookup of a manual reference keeps all fields)
+        if (!excludedColumns.isEmpty()) {
+            pageOperations.add(createFieldProjection(input));
+        }
 
-        if (!StringUtils.isEmpty(originalIdField)) {
-            input.getColumn("_id").ifPresent(c -> {
-                c.setData(originalIdField);
-                input.setColumns(input.getColumns());
-            });
+        aggregationOperations.add(Aggregation.skip((long) start));
+        if (length >= 0) {
+            aggregationOperations.add(Aggregation.limit(length));
         }
+        aggregationOperations.addAll(pageOperations);
+        aggregation = Aggregation.newAggregation(aggregationOperations).withOptions(aggregationOptions);
     }
 
-    private List<AggregationOperation> addReferenceResolver(DataTablesInput input) {
+    /**
+     * Resolves the searches on reference columns to the ids of the matching referenced documents, and the sorting by
+     * reference columns to the ordered ids of all referenced documents where possible. The reference columns which
+     * still have to be resolved with $lookup are those with more than {@code referenceKeyLimit} matching (or, when
+     * sorted by, existing) referenced documents.
+     */
+    private void resolveReferenceKeys(DataTablesInput input, Class<T> classType, ReferenceKeyResolver referenceKeyResolver,
+                                      int referenceKeyLimit) {
+        for (DataTablesInput.Column c : columns) {
+            DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = columnSearchConfiguration.get(c.getData());
+            if (searchConfig == null || !searchConfig.isReference() || !c.isSearchable() || isSnapshotSearch(c.getData(), searchConfig)) {
+                continue;
+            }
 
-        List<AggregationOperation> aggregations = new ArrayList<>();
+            for (DataTablesInput.Search search : Arrays.asList(input.getSearch(), c.getSearch())) {
+                if (search == null || !hasText(search.getValue())) {
+                    continue;
+                }
 
-        List<String> columnStrings = input.getColumns().stream()
-                .map(column -> column.getData().contains(".") ? column.getData().substring(0, column.getData().indexOf(".")) : column.getData())
-                .distinct()
-                .collect(toList());
+                Optional<List<Object>> keys = referenceKeyResolver != null && referenceKeyLimit > 0
+                        ? referenceKeyResolver.resolveKeys(searchConfig, search, referenceKeyLimit)
+                        : Optional.empty();
 
-        //needs to be included in following projections otherwise the result
-        //of date projection are getting lost during the aggregation processing
-        columnStrings.addAll(dateProjectionColumns);
+                if (keys.isPresent()) {
+                    referenceKeys.computeIfAbsent(c.getData(), data -> new HashMap<>()).put(search, keys.get());
+                } else {
+                    lookupColumns.add(c.getData());
+                    searchLookupColumns.add(c.getData());
+                }
+            }
+        }
 
-        for (DataTablesInput.Column c : input.getColumns()) {
+        if (!isEmpty(input.getOrder())) {
+            input.getOrder().stream()
+                    .filter(order -> isOrderable(input, order))
+                    .map(order -> orderColumns.get(order.getColumn()).getData())
+                    .filter(data -> columnSearchConfiguration.get(data) != null && columnSearchConfiguration.get(data).isReference())
+                    .filter(data -> !lookupColumns.contains(data))
+                    .filter(data -> !isSnapshotOrder(data, columnSearchConfiguration.get(data)))
+                    .forEach(data -> {
+                        // the rank of an array of manual references is not defined, MongoDB sorts by its elements
+                        boolean multiValued = isManualReference(columnSearchConfiguration.get(data)) && isMultiValued(classType, data);
+
+                        Optional<List<Object>> keys = referenceKeyResolver != null && referenceKeyLimit > 0 && !multiValued
+                                ? referenceKeyResolver.resolveOrder(columnSearchConfiguration.get(data), collation, referenceKeyLimit)
+                                : Optional.empty();
+
+                        if (keys.isPresent()) {
+                            rankKeys.put(data, keys.get());
+                        } else {
+                            lookupColumns.add(data);
+                        }
+                    });
+        }
+    }
+
+    private static DataTablesInput.Column renameColumn(DataTablesInput.Column column, String data) {
+        DataTablesInput.Column renamedColumn = new DataTablesInput.Column();
+        renamedColumn.setData(data);
+        renamedColumn.setName(column.getName());
+        renamedColumn.setSearchable(column.isSearchable());
+        renamedColumn.setOrderable(column.isOrderable());
+        renamedColumn.setSearch(column.getSearch());
+        return renamedColumn;
+    }
+
+    private static boolean isManualReference(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig) {
+        return hasText(searchConfig.getReferenceForeignField());
+    }
+
+    /**
+     * @return true if the field of the column is an array or a collection, or cannot be resolved
+     */
+    private static boolean isMultiValued(Class<?> classType, String data) {
+        java.lang.reflect.Field field = ReflectionUtils.findField(classType, data);
+        return field == null || field.getType().isArray() || Collection.class.isAssignableFrom(field.getType());
+    }
+
+    /**
+     * @return the field which holds the key of the referenced document, which is matched against the reference keys
+     */
+    private static String getReferenceKeyField(String data, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig) {
+        return isManualReference(searchConfig) ? data : data + ".$id";
+    }
+
+    /**
+     * @return true if the search on the reference column can use the snapshot of a {@link DataTablesDenormalized} field
+     */
+    private boolean isSnapshotSearch(String data, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig) {
+        DenormalizedFields.DenormalizedField field = denormalizedFields.get(data);
+        return field != null && field.coversSearch(searchConfig);
+    }
+
+    /**
+     * @return true if the sorting by the reference column can use the snapshot of a {@link DataTablesDenormalized} field
+     */
+    private boolean isSnapshotOrder(String data, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig) {
+        DenormalizedFields.DenormalizedField field = denormalizedFields.get(data);
+        return field != null && field.coversOrder(searchConfig);
+    }
+
+    /**
+     * @param columnStrings the fields to keep in the projections, to which the resolved columns are added
+     * @param resolved      selects the columns to resolve
+     */
+    private List<AggregationOperation> addReferenceResolver(DataTablesInput input, List<String> columnStrings, Predicate<String> resolved) {
+
+        List<AggregationOperation> aggregations = new ArrayList<>();
+
+        for (DataTablesInput.Column c : columns) {
 
             DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = columnSearchConfiguration.get(c.getData());
 
-            if (searchConfig != null && searchConfig.isReference() && (c.isSearchable() || c.isOrderable())) {
+            if (!resolved.test(c.getData())) {
+                continue;
+            }
+
+            if (searchConfig != null && searchConfig.isReference() && lookupColumns.contains(c.getData())) {
 
                 String resolvedReferenceColumn = getResolvedRefColumn(c, columnStrings);
 
                 resolvedColumn.put(c.getData(), resolvedReferenceColumn);
 
+                if (isManualReference(searchConfig)) {
+                    // The column holds the key itself (or an array of keys), so it can be joined directly
+                    columnStrings.add(resolvedReferenceColumn);
+                    aggregations.add(Aggregation.lookup(searchConfig.getReferenceCollection(), c.getData(),
+                            searchConfig.getReferenceForeignField(), resolvedReferenceColumn));
+                    continue;
+                }
+
                 String[] columnStringsArr = columnStrings.toArray(new String[0]);
 
                 // Convert reference field array of key-value objects
@@ -178,6 +353,29 @@ final class DataTablesCriteria<T> {
                 aggregations.add(projectDbRefObject);
                 aggregations.add(projectPidField);
                 aggregations.add(lookupOperation);
+            } else if (rankKeys.containsKey(c.getData())) {
+
+                String resolvedReferenceColumn = getResolvedRefColumn(c, columnStrings);
+
+                resolvedColumn.put(c.getData(), resolvedReferenceColumn);
+
+                // Rank of the referenced document in the order of the reference order column, which replaces the lookup
+                List<Object> keys = rankKeys.get(c.getData());
+                Object referenceId = isManualReference(searchConfig) ? "$" + c.getData() :
+                        new Document("$let", new Document()
+                                .append("vars", new Document("ref", new Document("$arrayElemAt",
+                                        Arrays.asList(new Document("$objectToArray", "$" + c.getData()), 1))))
+                                .append("in", "$$ref.v"));
+                AggregationExpression rank = context -> new Document("$indexOfArray", Arrays.asList(keys, referenceId));
+
+                ProjectionOperation projectRank = Aggregation
+                        .project(allClassFields)
+                        .andInclude(columnStrings.toArray(new String[0]))
+                        .and(rank).as(resolvedReferenceColumn + "_rank");
+
+                columnStrings.add(resolvedReferenceColumn + "_rank");
+
+                aggregations.add(projectRank);
             }
         }
 
@@ -187,16 +385,15 @@ final class DataTablesCriteria<T> {
     private List<AggregationOperation> addDateResolver(DataTablesInput input) {
 
         List<AggregationOperation> aggregations = new ArrayList<>();
-        List<String> columnStrings = input.getColumns().stream()
-                .map(column -> column.getData().contains(".") ? column.getData().substring(0, column.getData().indexOf(".")) : column.getData())
-                .distinct()
-                .collect(toList());
-        for (DataTablesInput.Column c : input.getColumns()) {
+        List<String> columnStrings = getColumnStrings(input);
+        for (DataTablesInput.Column c : columns) {
             String[] columnStringsArr = columnStrings.toArray(new String[0]);
 
             DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = columnSearchConfiguration.get(c.getData());
 
-            if (searchConfig != null && searchConfig.getSearchType().equals(DataTablesInput.SearchType.Date) && (c.isSearchable() || c.isOrderable())) {
+            // sorting uses the date itself, only a search needs the formatted string
+            if (searchConfig != null && !searchConfig.isReference() && searchConfig.getSearchType().equals(DataTablesInput.SearchType.Date)
+                    && c.isSearchable() && (hasText(input.getSearch().getValue()) || hasText(c.getSearch().getValue()))) {
                 String projectionColumnName = c.getData() + "TimeString";
                 ProjectionOperation projectDateToString;
                 // Convert date field to date formatted string
@@ -224,31 +421,52 @@ final class DataTablesCriteria<T> {
         return aggregations;
     }
 
-    private AggregationOperation addGlobalCriteria(DataTablesInput input) {
+    /**
+     * @return true if the search on the column matches a field computed by the pipeline, i.e. the formatted string of
+     * a date or a referenced document joined with $lookup
+     */
+    private boolean isResolvedSearch(DataTablesInput.Column column) {
+        DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = columnSearchConfiguration.get(column.getData());
+        if (searchConfig == null) {
+            return false;
+        }
+        return searchConfig.isReference()
+                ? searchLookupColumns.contains(column.getData())
+                : searchConfig.getSearchType().equals(DataTablesInput.SearchType.Date);
+    }
+
+    /**
+     * @return a single $match stage with the conjunction of the given criteria
+     */
+    private static MatchOperation matchAll(List<Criteria> criteria) {
+        return Aggregation.match(criteria.size() == 1 ? criteria.get(0) : new Criteria().andOperator(criteria.toArray(new Criteria[0])));
+    }
+
+    private Criteria addGlobalCriteria(DataTablesInput input) {
         if (!hasText(input.getSearch().getValue())) return null;
 
-        Criteria[] criteriaArray = input.getColumns().stream()
+        Criteria[] criteriaArray = columns.stream()
                 .filter(DataTablesInput.Column::isSearchable)
                 .map(column -> createCriteria(column, input.getSearch()))
                 .flatMap(Collection::stream)
                 .toArray(Criteria[]::new);
 
         if (criteriaArray.length == 1) {
-            return Aggregation.match(criteriaArray[0]);
+            return criteriaArray[0];
         } else if (criteriaArray.length >= 2) {
-            return Aggregation.match(new Criteria().orOperator(criteriaArray));
+            return new Criteria().orOperator(criteriaArray);
         } else {
             return null;
         }
     }
 
-    private MatchOperation addColumnCriteria(DataTablesInput.Column column) {
+    private Criteria addColumnCriteria(DataTablesInput.Column column) {
         if (column.isSearchable() && hasText(column.getSearch().getValue())) {
             List<Criteria> criteria = createCriteria(column, column.getSearch());
             if (criteria.size() == 1) {
-                return Aggregation.match(criteria.get(0));
+                return criteria.get(0);
             } else if (criteria.size() >= 2) {
-                return Aggregation.match(new Criteria().orOperator(criteria.toArray(new Criteria[0])));
+                return new Criteria().orOperator(criteria.toArray(new Criteria[0]));
             }
         }
 
@@ -264,19 +482,16 @@ final class DataTablesCriteria<T> {
         }
 
         if (searchConfig.isReference()) {
-            // In case of reference, no searchType is available -> autoconvert true/false, else do string comparison
-            if ("true".equalsIgnoreCase(searchValue) || "false".equalsIgnoreCase(searchValue)) {
-                boolean boolSearchValue = Boolean.parseBoolean(searchValue);
+            if (isSnapshotSearch(column.getData(), searchConfig)) {
+                return createReferenceCriteria(denormalizedFields.get(column.getData()).getSnapshotField() + ".", searchConfig, search);
+            }
 
-                return searchConfig.getReferenceColumns().stream()
-                        .map(data -> where(resolvedColumn.get(column.getData()) + "." + data).is(boolSearchValue))
-                        .collect(toList());
-            } else {
-                return searchConfig.getReferenceColumns().stream()
-                        .map(data -> search.isRegex() ?
-                                where(resolvedColumn.get(column.getData()) + "." + data).regex(searchValue) : where(resolvedColumn.get(column.getData()) + "." + data).regex(searchValue.trim(), "i"))
-                        .collect(toList());
+            List<Object> keys = referenceKeys.getOrDefault(column.getData(), Collections.emptyMap()).get(search);
+            if (keys != null) {
+                return Collections.singletonList(where(getReferenceKeyField(column.getData(), searchConfig)).in(keys));
             }
+
+            return createReferenceCriteria(resolvedColumn.get(column.getData()) + ".", searchConfig, search);
         } else {
             List<Criteria> criteria = new ArrayList<>();
 
@@ -287,11 +502,24 @@ final class DataTablesCriteria<T> {
                     }
                     break;
                 case Integer:
-                    try {
-                        int intSearchValue = Integer.parseInt(searchValue.trim());
-                        criteria.add(where(column.getData()).is(intSearchValue));
-                    } catch (NumberFormatException e) {
-                        return criteria;
+                case Long:
+                case Double:
+                case Decimal128:
+                    createRangeCriteria(column.getData(), searchValue, getValueParser(searchConfig.getSearchType())).ifPresent(criteria::add);
+                    break;
+                case ObjectId:
+                case UUID:
+                    createValuesCriteria(column.getData(), searchValue, getValueParser(searchConfig.getSearchType())).ifPresent(criteria::add);
+                    break;
+                case In:
+                    createValuesCriteria(column.getData(), searchValue, getValueParser(searchConfig.getValueType())).ifPresent(criteria::add);
+                    break;
+                case EqualsIgnoreCase:
+                    // the case-insensitivity is provided by the collation of the aggregation
+                    if (search.isRegex()) {
+                        criteria.add(where(column.getData()).regex(searchValue));
+                    } else {
+                        criteria.add(where(column.getData()).is(searchValue.trim()));
                     }
                     break;
                 case Date:
@@ -305,6 +533,10 @@ final class DataTablesCriteria<T> {
                 default:
                     if (search.isRegex()) {
                         criteria.add(where(column.getData()).regex(searchValue));
+                    } else if (normalizedColumns.containsKey(column.getData())) {
+                        // case-sensitive pattern on the lowercase copy, which (unlike the "i" option) can use an index
+                        String normalizedSearchValue = SearchableFields.escape(SearchableFields.normalize(searchValue.trim()));
+                        criteria.add(where(normalizedColumns.get(column.getData())).regex(normalizedSearchValue));
                     } else {
                         criteria.add(where(column.getData()).regex(searchValue.trim(), "i"));
                     }
@@ -315,6 +547,131 @@ final class DataTablesCriteria<T> {
         }
     }
 
+    /**
+     * Creates the criteria of a search on the columns of a referenced document.
+     *
+     * @param prefix the path of the referenced document followed by a dot, or an empty string when querying the
+     *               referenced collection itself
+     */
+    static List<Criteria> createReferenceCriteria(String prefix, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig,
+                                                  DataTablesInput.Search search) {
+        String searchValue = search.getValue();
+
+        // In case of reference, no searchType is available -> autoconvert true/false, else do string comparison
+        if ("true".equalsIgnoreCase(searchValue) || "false".equalsIgnoreCase(searchValue)) {
+            boolean boolSearchValue = Boolean.parseBoolean(searchValue);
+
+            return searchConfig.getReferenceColumns().stream()
+                    .map(data -> where(prefix + data).is(boolSearchValue))
+                    .collect(toList());
+        } else {
+            return searchConfig.getReferenceColumns().stream()
+                    .map(data -> search.isRegex() ?
+                            where(prefix + data).regex(searchValue) : where(prefix + data).regex(searchValue.trim(), "i"))
+                    .collect(toList());
+        }
+    }
+
+    /**
+     * Creates an equality ("5", "=5"), comparison ("&gt;5", "&gt;=5", "&lt;5", "&lt;=5") or inclusive range ("10..20",
+     * "10..", "..20") criteria, so that numeric columns can be searched with their index instead of a regex.
+     *
+     * @return the criteria, or empty if the search value cannot be parsed
+     */
+    private Optional<Criteria> createRangeCriteria(String field, String searchValue, Function<String, Object> parser) {
+        String value = searchValue.trim();
+
+        try {
+            int rangeSeparator = value.indexOf("..");
+            if (rangeSeparator >= 0) {
+                String lowerBound = value.substring(0, rangeSeparator).trim();
+                String upperBound = value.substring(rangeSeparator + 2).trim();
+                if (lowerBound.isEmpty() && upperBound.isEmpty()) {
+                    return Optional.empty();
+                }
+
+                Criteria criteria = where(field);
+                if (!lowerBound.isEmpty()) {
+                    criteria = criteria.gte(parser.apply(lowerBound));
+                }
+                if (!upperBound.isEmpty()) {
+                    criteria = criteria.lte(parser.apply(upperBound));
+                }
+                return Optional.of(criteria);
+            } else if (value.startsWith(">=")) {
+                return Optional.of(where(field).gte(parser.apply(value.substring(2).trim())));
+            } else if (value.startsWith("<=")) {
+                return Optional.of(where(field).lte(parser.apply(value.substring(2).trim())));
+            } else if (value.startsWith(">")) {
+                return Optional.of(where(field).gt(parser.apply(value.substring(1).trim())));
+            } else if (value.startsWith("<")) {
+                return Optional.of(where(field).lt(parser.apply(value.substring(1).trim())));
+            } else if (value.startsWith("=")) {
+                return Optional.of(where(field).is(parser.apply(value.substring(1).trim())));
+            } else {
+                return Optional.of(where(field).is(parser.apply(value)));
+            }
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Creates an equality criteria for a single value or an $in criteria for a list of values separated by "|" or ",",
+     * so that e.g. a lookup by id is a point query on the primary index.
+     *
+     * @return the criteria, or empty if none of the values can be parsed
+     */
+    private Optional<Criteria> createValuesCriteria(String field, String searchValue, Function<String, Object> parser) {
+        List<Object> values = new ArrayList<>();
+
+        for (String value : VALUE_SEPARATOR.split(searchValue)) {
+            if (hasText(value)) {
+                try {
+                    values.add(parser.apply(value.trim()));
+                } catch (IllegalArgumentException e) {
+                    // ignore values which are not valid for this type, like the other typed search types do
+                }
+            }
+        }
+
+        if (values.isEmpty()) {
+            return Optional.empty();
+        } else if (values.size() == 1) {
+            return Optional.of(where(field).is(values.get(0)));
+        } else {
+            return Optional.of(where(field).in(values));
+        }
+    }
+
+    private static Function<String, Object> getValueParser(DataTablesInput.SearchType valueType) {
+        switch (valueType) {
+            case Boolean:
+                return value -> {
+                    if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+                        return Boolean.parseBoolean(value);
+                    }
+                    throw new IllegalArgumentException("Not a boolean: " + value);
+                };
+            case Integer:
+                return Integer::parseInt;
+            case Long:
+                return Long::parseLong;
+            case Double:
+                return Double::parseDouble;
+            case Decimal128:
+                return value -> new Decimal128(new BigDecimal(value));
+            case ObjectId:
+                return ObjectId::new;
+            case UUID:
+                return UUID::fromString;
+            case String:
+                return value -> value;
+            default:
+                throw new IllegalArgumentException("Search type " + valueType + " is not supported as value type.");
+        }
+    }
+
     private List<AggregationOperation> addSort(DataTablesInput input) {
         List<AggregationOperation> operations = new ArrayList<>();
 
@@ -329,36 +686,36 @@ final class DataTablesCriteria<T> {
 
         }
 
-        operations.add(Aggregation.skip(input.getStart()));
-
-        if (input.getLength() >= 0) {
-            operations.add(Aggregation.limit(input.getLength()));
-        }
-
         return operations;
     }
 
     private boolean isOrderable(DataTablesInput input, DataTablesInput.Order order) {
-        boolean isWithinBounds = order.getColumn() < input.getColumns().size();
+        if (order.getColumn() >= orderColumns.size() || orderColumns.get(order.getColumn()) == null) {
+            return false;
+        }
 
-        DataTablesInput.Column column = input.getColumns().get(order.getColumn());
+        DataTablesInput.Column column = orderColumns.get(order.getColumn());
 
         if (columnSearchConfiguration.containsKey(column.getData())) {
             DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = columnSearchConfiguration.get(column.getData());
-            return isWithinBounds && column.isOrderable()
+            return column.isOrderable()
                     && (!searchConfig.isReference() || !StringUtils.isEmpty(searchConfig.getReferenceOrderColumn()));
         } else {
-            return isWithinBounds && column.isOrderable();
+            return column.isOrderable();
         }
     }
 
     private Sort.Order toOrder(DataTablesInput input, DataTablesInput.Order order) {
-        DataTablesInput.Column column = input.getColumns().get(order.getColumn());
+        DataTablesInput.Column column = orderColumns.get(order.getColumn());
         Sort.Direction sortDir = order.getDir() == DataTablesInput.Order.Direction.asc ? Sort.Direction.ASC : Sort.Direction.DESC;
 
         if (columnSearchConfiguration.containsKey(column.getData())) {
             DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = columnSearchConfiguration.get(column.getData());
-            if (searchConfig.isReference()) {
+            if (searchConfig.isReference() && isSnapshotOrder(column.getData(), searchConfig)) {
+                return new Sort.Order(sortDir, denormalizedFields.get(column.getData()).getSnapshotField() + "." + searchConfig.getReferenceOrderColumn());
+            } else if (searchConfig.isReference() && rankKeys.containsKey(column.getData())) {
+                return new Sort.Order(sortDir, resolvedColumn.get(column.getData()) + "_rank");
+            } else if (searchConfig.isReference()) {
                 return new Sort.Order(sortDir, resolvedColumn.get(column.getData()) + "." + searchConfig.getReferenceOrderColumn());
             }
         }
@@ -384,50 +741,113 @@ final class DataTablesCriteria<T> {
         return aggregation;
     }
 
+    /**
+     * @param fields the document fields of the results, e.g. of a projection
+     * @return the aggregation of the page, with a final $project stage which keeps only the given fields
+     */
+    public Aggregation toAggregation(Collection<String> fields) {
+        List<AggregationOperation> operations = new ArrayList<>(sortedOperations);
+        operations.add(Aggregation.skip((long) start));
+        if (length >= 0) {
+            operations.add(Aggregation.limit(length));
+        }
+        operations.addAll(pageOperations);
+        operations.add(createProjection(fields));
+        return Aggregation.newAggregation(operations).withOptions(aggregationOptions);
+    }
+
+    /**
+     * @param fields the document fields of the results, or null to keep the whole documents
+     * @param window the number of documents the cursor reads at most, which keeps the sort within the memory limit
+     * @return the aggregation of the documents from the start of the page on, i.e. with the limit of the window
+     */
+    public Aggregation toCursorAggregation(Collection<String> fields, long window) {
+        List<AggregationOperation> operations = new ArrayList<>(sortedOperations);
+        operations.add(Aggregation.skip((long) start));
+        operations.add(Aggregation.limit(window));
+        operations.addAll(pageOperations);
+        if (fields != null) {
+            operations.add(createProjection(fields));
+        }
+        return Aggregation.newAggregation(operations).withOptions(aggregationOptions);
+    }
+
+    /**
+     * @param fields the document fields of the results, or null to keep the whole documents
+     * @return the aggregation of the page following the requested one
+     */
+    public Aggregation toNextPageAggregation(Collection<String> fields) {
+        List<AggregationOperation> operations = new ArrayList<>(sortedOperations);
+        operations.add(Aggregation.skip((long) start + length));
+        operations.add(Aggregation.limit(length));
+        operations.addAll(pageOperations);
+        if (fields != null) {
+            operations.add(createProjection(fields));
+        }
+        return Aggregation.newAggregation(operations).withOptions(aggregationOptions);
+    }
+
+    /**
+     * @return identifies the filtered and sorted documents, regardless of the page, or null if the pipeline cannot be
+     * rendered without the mapping context
+     */
+    public String fingerprint() {
+        try {
+            Document pipeline = new Document("pipeline", Aggregation.newAggregation(sortedOperations).toPipeline(Aggregation.DEFAULT_CONTEXT));
+            if (aggregationOptions.getCollation().isPresent()) {
+                pipeline.append("collation", aggregationOptions.getCollation().get().toDocument());
+            }
+            return pipeline.toJson();
+        } catch (CodecConfigurationException e) {
+            return null;
+        }
+    }
+
+    private static AggregationOperation createProjection(Collection<String> fields) {
+        Document projection = new Document();
+        fields.forEach(field -> projection.put(field, 1));
+        return context -> new Document("$project", projection);
+    }
+
     public Aggregation toFilteredCountAggregation() {
         return filteredCountAggregation;
     }
 
+    /**
+     * @return true if the search or the additional criteria filter the documents, i.e. if the filtered count may
+     * differ from the total count
+     */
+    public boolean isFiltered() {
+        return filtered;
+    }
+
     private AggregationOperation createFieldProjection(DataTablesInput input) {
-        List<String> columnStrings = input.getColumns().stream()
-                .map(column -> column.getData().contains(".") ? column.getData().substring(0, column.getData().indexOf(".")) : column.getData())
-                .distinct()
-                .collect(toList());
-        columnStrings.addAll(dateProjectionColumns);
+        List<String> columnStrings = getColumnStrings(input);
         return Aggregation.project(allClassFields).andInclude(columnStrings.toArray(new String[0]));
     }
 
     /**
-     * Use official getFields method to list all fields of the class.
-     * Source: https://github.com/spring-projects/spring-data-mongodb/blob/1a5de2e1db939f7b35579f11815894fd637fc227/spring-data-mongodb/src/main/java/org/springframework/data/mongodb/core/aggregation/AggregationOperationContext.java#L88
+     * Lists the top level fields of all columns, which have to be kept by each projection of the pipeline.
      *
-     * @return Class fields
+     * @return Column fields
      */
-    private Fields getFields(Class<T> type, List<String> excludedColumns) {
+    private List<String> getColumnStrings(DataTablesInput input) {
+        List<String> columnStrings = columns.stream()
+                .map(column -> column.getData().contains(".") ? column.getData().substring(0, column.getData().indexOf(".")) : column.getData())
+                .distinct()
+                .collect(toList());
 
-        return Fields.fields(Arrays.stream(BeanUtils.getPropertyDescriptors(type))
-                .filter(it -> {
-                    Method method = it.getReadMethod();
-                    if (method == null) {
-                        return false;
-                    }
-                    if (ReflectionUtils.isObjectMethod(method)) {
-                        return false;
-                    }
+        columnStrings.addAll(normalizedColumns.values());
 
-                    if (excludedColumns.contains(it.getName())) {
-                        return false;
-                    }
+        columnStrings.addAll(columns.stream()
+                .map(DataTablesInput.Column::getData)
+                .filter(denormalizedFields::containsKey)
+                .map(data -> denormalizedFields.get(data).getSnapshotField())
+                .collect(toList()));
 
-                    return !method.isDefault();
-                })
-                .map(PropertyDescriptor::getName)
-                .toArray(String[]::new));
-    }
-
-    private void setDeclaredIdField(Class<T> classType) {
-        Optional<java.lang.reflect.Field> idField = Arrays.stream(classType.getDeclaredFields())
-                .filter(f -> f.isAnnotationPresent(Id.class)).findFirst();
-        idField.ifPresent(f -> originalIdField = idField.get().getName());
+        //needs to be included in following projections otherwise the result
+        //of date projection are getting lost during the aggregation processing
+        columnStrings.addAll(dateProjectionColumns);
+        return columnStrings;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,231 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.springframework.data.util.CloseableIterator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the cursor of the last draw of a client session open, so that the next page of the same table (with the same
+ * search and order) is read by continuing the cursor instead of executing the aggregation again with a larger $skip.
+ * The rows read last are kept in a ring buffer, so that paging back by up to {@code bufferSize} rows is served from
+ * memory. The filtered count of the cursor is reused as well.
+ * <p>
+ * A cursor reads at most {@code windowPages} pages from the page it has been opened for, so that the server only has
+ * to keep the top of the sorted documents instead of sorting all of them. Paging beyond the window opens a new cursor.
+ * <p>
+ * Register it as a bean to enable it. Only requests with a {@link DataTablesInput#getSessionId() session id} use a
+ * cursor. Cursors are closed when they have not been used for {@code timeToLive}, or when more than
+ * {@code maxCursors} cursors are open. Changes to the collection are not visible to an open cursor, so the time to
+ * live should be short.
+ */
+public class DataTablesCursorPool {
+
+    private final long timeToLiveMillis;
+    private final int bufferSize;
+    private final int windowPages;
+    private final Map<String, Cursor> cursors;
+
+    /**
+     * @param maxCursors the maximum number of open cursors
+     * @param timeToLive the time after which an unused cursor is closed, must be shorter than the cursor timeout of
+     *                   the server (10 minutes by default)
+     * @param bufferSize the number of rows kept for paging back, e.g. the page size
+     */
+    public DataTablesCursorPool(int maxCursors, Duration timeToLive, int bufferSize) {
+        this(maxCursors, timeToLive, bufferSize, 10);
+    }
+
+    /**
+     * @param maxCursors  the maximum number of open cursors
+     * @param timeToLive  the time after which an unused cursor is closed, must be shorter than the cursor timeout of
+     *                    the server (10 minutes by default)
+     * @param bufferSize  the number of rows kept for paging back, e.g. the page size
+     * @param windowPages the number of pages a cursor reads at most
+     */
+    public DataTablesCursorPool(int maxCursors, Duration timeToLive, int bufferSize, int windowPages) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("The buffer size must be positive.");
+        }
+        if (windowPages < 1) {
+            throw new IllegalArgumentException("The window must contain at least one page.");
+        }
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.bufferSize = bufferSize;
+        this.windowPages = windowPages;
+        this.cursors = new LinkedHashMap<String, Cursor>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cursor> eldest) {
+                if (size() > maxCursors) {
+                    eldest.getValue().close();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Closes all open cursors.
+     */
+    public void closeAll() {
+        List<Cursor> closedCursors;
+        synchronized (cursors) {
+            closedCursors = new ArrayList<>(cursors.values());
+            cursors.clear();
+        }
+        closedCursors.forEach(Cursor::close);
+    }
+
+    /**
+     * Takes the cursor of the session out of the pool, so that it is used by one request at a time.
+     *
+     * @param key         identifies the session and collection
+     * @param fingerprint identifies the filtered and sorted documents
+     * @return the cursor, or null if there is no open cursor with the same fingerprint
+     */
+    Cursor acquire(String key, String fingerprint) {
+        Cursor cursor;
+        synchronized (cursors) {
+            closeExpired();
+            cursor = cursors.remove(key);
+        }
+
+        if (cursor != null && !cursor.fingerprint.equals(fingerprint)) {
+            cursor.close();
+            return null;
+        }
+        return cursor;
+    }
+
+    /**
+     * Returns the cursor to the pool after it has been used.
+     */
+    void release(String key, Cursor cursor) {
+        cursor.lastUsed = System.currentTimeMillis();
+
+        Cursor replacedCursor;
+        synchronized (cursors) {
+            replacedCursor = cursors.put(key, cursor);
+        }
+        if (replacedCursor != null && replacedCursor != cursor) {
+            replacedCursor.close();
+        }
+    }
+
+    /**
+     * @return the number of rows a new cursor for pages of the given length reads at most
+     */
+    long getWindow(int length) {
+        return (long) length * windowPages;
+    }
+
+    /**
+     * @param iterator the rows from {@code start} on, limited to {@link #getWindow(int)} rows
+     */
+    Cursor open(String fingerprint, CloseableIterator<?> iterator, long start, int length, long recordsFiltered) {
+        return new Cursor(fingerprint, iterator, start, start + getWindow(length), recordsFiltered, bufferSize);
+    }
+
+    private void closeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Cursor> iterator = cursors.values().iterator();
+        while (iterator.hasNext()) {
+            Cursor cursor = iterator.next();
+            if (cursor.lastUsed + timeToLiveMillis < now) {
+                cursor.close();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * An open cursor with the rows it has read last.
+     */
+    static final class Cursor {
+        private final String fingerprint;
+        private final CloseableIterator<?> iterator;
+        private final long end;
+        private final long recordsFiltered;
+        private final Object[] buffer;
+
+        /**
+         * The position of the row the iterator returns next.
+         */
+        private long position;
+        private int buffered;
+        private long next;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Cursor(String fingerprint, CloseableIterator<?> iterator, long start, long end, long recordsFiltered, int bufferSize) {
+            this.fingerprint = fingerprint;
+            this.iterator = iterator;
+            this.end = end;
+            this.recordsFiltered = recordsFiltered;
+            this.buffer = new Object[bufferSize];
+            this.position = start;
+            this.next = start;
+        }
+
+        long getRecordsFiltered() {
+            return recordsFiltered;
+        }
+
+        /**
+         * Moves to the given position, if it is buffered or at most {@code bufferSize} rows ahead of the cursor, and if
+         * the page ends within the window of the cursor.
+         *
+         * @return true if the rows of the page can be read
+         */
+        boolean seek(long start, int length) {
+            if (start < position - buffered || start > position + buffer.length) {
+                return false;
+            }
+            if (start + length > end && end < recordsFiltered) {
+                return false;
+            }
+            next = start;
+            return true;
+        }
+
+        /**
+         * @return the next row, or null if there are no more rows
+         */
+        @SuppressWarnings("unchecked")
+        <S> S next() {
+            if (next < position) {
+                return (S) buffer[(int) (next++ % buffer.length)];
+            }
+
+            while (position < next) {
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                read();
+            }
+
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            next++;
+            return (S) read();
+        }
+
+        private Object read() {
+            Object row = iterator.next();
+            buffer[(int) (position++ % buffer.length)] = row;
+            buffered = Math.min(buffered + 1, buffer.length);
+            return row;
+        }
+
+        void close() {
+            iterator.close();
+        }
+    }
+}
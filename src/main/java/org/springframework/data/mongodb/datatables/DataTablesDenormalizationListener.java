@@ -0,0 +1,190 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Maintains the snapshots of fields annotated with {@link DataTablesDenormalized}: the snapshot is written when the
+ * owning document is saved, updated in all owning documents when the referenced document is saved, and removed from
+ * them when the referenced document is deleted.
+ * <p>
+ * Register it as a bean to enable the feature. Existing documents can be migrated with {@link #backfill(Class)}. Only
+ * documents written through {@code save} or {@code insert}, and deleted by id (like the deletes of the repositories)
+ * or all at once, are covered.
+ */
+public class DataTablesDenormalizationListener extends AbstractMongoEventListener<Object> {
+
+    private final MongoOperations mongoOperations;
+    private final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext;
+
+    /**
+     * The denormalized fields of all entities known to the mapping context, by the collection they reference.
+     */
+    private volatile Dependents dependents;
+
+    public DataTablesDenormalizationListener(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+        this.mappingContext = mongoOperations.getConverter().getMappingContext();
+    }
+
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<Object> event) {
+        Object source = event.getSource();
+        Document document = event.getDocument();
+        if (document == null) {
+            return;
+        }
+
+        for (DenormalizedFields.DenormalizedField field : DenormalizedFields.getDenormalizedFields(mappingContext, source.getClass()).values()) {
+            Object reference = SearchableFields.readField(source, field.getName());
+            if (reference != null && field.isManualReference()) {
+                // the field holds the id of the referenced document, of which only the snapshot columns are read
+                Query referenceQuery = query(where("_id").is(reference));
+                field.getColumns().forEach(column -> referenceQuery.fields().include(column));
+                reference = mongoOperations.findOne(referenceQuery, Document.class, mongoOperations.getCollectionName(field.getReferenceType()));
+            }
+            if (reference instanceof Document) {
+                document.put(field.getSnapshotField(), createSnapshot((Document) reference, field));
+            } else if (reference != null) {
+                document.put(field.getSnapshotField(), createSnapshot(reference, field));
+            } else {
+                document.remove(field.getSnapshotField());
+            }
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Object source = event.getSource();
+        Document document = event.getDocument();
+        if (document == null || document.get("_id") == null) {
+            return;
+        }
+
+        for (Dependent dependent : getDependents(event.getCollectionName())) {
+            if (dependent.field.getReferenceType().isInstance(source)) {
+                updateSnapshots(dependent.collection, dependent.field, document.get("_id"), createSnapshot(source, dependent.field));
+            }
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        Document query = event.getDocument();
+        Collection<?> ids = query != null ? DenormalizedFields.getDeletedIds(query) : null;
+        if (ids == null) {
+            return;
+        }
+
+        for (Dependent dependent : getDependents(event.getCollectionName())) {
+            String snapshotField = dependent.field.getSnapshotField();
+            Criteria criteria = ids.isEmpty() ? where(snapshotField).exists(true) : where(dependent.field.getKeyField()).in(ids);
+            mongoOperations.updateMulti(query(criteria), new Update().unset(snapshotField), dependent.collection);
+        }
+    }
+
+    /**
+     * Writes the snapshots of all denormalized fields of the given type, e.g. after the annotation was added.
+     *
+     * @param type the owning entity type
+     * @return the number of updated documents
+     */
+    public long backfill(Class<?> type) {
+        String collection = mongoOperations.getCollectionName(type);
+        long updated = 0;
+
+        for (DenormalizedFields.DenormalizedField field : DenormalizedFields.getDenormalizedFields(mappingContext, type).values()) {
+            Query referenceQuery = new Query();
+            field.getColumns().forEach(column -> referenceQuery.fields().include(column));
+
+            try (CloseableIterator<Document> references = mongoOperations.stream(referenceQuery, Document.class,
+                    mongoOperations.getCollectionName(field.getReferenceType()))) {
+                while (references.hasNext()) {
+                    Document referenceDocument = references.next();
+                    updated += updateSnapshots(collection, field, referenceDocument.get("_id"), createSnapshot(referenceDocument, field));
+                }
+            }
+        }
+
+        return updated;
+    }
+
+    private long updateSnapshots(String collection, DenormalizedFields.DenormalizedField field, Object referenceId, Document snapshot) {
+        return mongoOperations.updateMulti(query(where(field.getKeyField()).is(referenceId)),
+                new Update().set(field.getSnapshotField(), snapshot), collection).getModifiedCount();
+    }
+
+    /**
+     * @return the denormalized fields which reference the given collection, with the collections of their entities
+     */
+    private List<Dependent> getDependents(String referenceCollection) {
+        Collection<? extends MongoPersistentEntity<?>> entities = mappingContext.getPersistentEntities();
+        Dependents current = dependents;
+        if (current == null || current.entityCount != entities.size()) {
+            // the mapping context adds entities when they are first used, so the index is rebuilt when it grows
+            current = new Dependents(entities);
+            dependents = current;
+        }
+        return current.byReferenceCollection.getOrDefault(referenceCollection, Collections.emptyList());
+    }
+
+    private Document createSnapshot(Object reference, DenormalizedFields.DenormalizedField field) {
+        Document referenceDocument = new Document();
+        mongoOperations.getConverter().write(reference, referenceDocument);
+        return createSnapshot(referenceDocument, field);
+    }
+
+    private static Document createSnapshot(Document referenceDocument, DenormalizedFields.DenormalizedField field) {
+        Document snapshot = new Document();
+        for (String column : field.getColumns()) {
+            snapshot.put(column, ReferenceKeyResolver.getValue(referenceDocument, column));
+        }
+        return snapshot;
+    }
+
+    private final class Dependents {
+        private final int entityCount;
+        private final Map<String, List<Dependent>> byReferenceCollection = new HashMap<>();
+
+        private Dependents(Collection<? extends MongoPersistentEntity<?>> entities) {
+            entityCount = entities.size();
+            for (MongoPersistentEntity<?> owner : entities) {
+                for (DenormalizedFields.DenormalizedField field : DenormalizedFields.getDenormalizedFields(mappingContext, owner.getType()).values()) {
+                    byReferenceCollection.computeIfAbsent(mongoOperations.getCollectionName(field.getReferenceType()), c -> new ArrayList<>())
+                            .add(new Dependent(owner.getCollection(), field));
+                }
+            }
+        }
+    }
+
+    private static final class Dependent {
+        private final String collection;
+        private final DenormalizedFields.DenormalizedField field;
+
+        private Dependent(String collection, DenormalizedFields.DenormalizedField field) {
+            this.collection = collection;
+            this.field = field;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link org.springframework.data.mongodb.core.mapping.DBRef} field, or a manual reference holding the id of
+ * the referenced document (see {@link #referenceType()}), whose reference columns should be copied into a snapshot
+ * sub-document next to the reference (with the suffix {@value DenormalizedFields#SNAPSHOT_SUFFIX}).
+ * <p>
+ * The snapshot is maintained by the {@link DataTablesDenormalizationListener}, and stored next to the mapped field
+ * (e.g. of its {@code @Field} annotation). Reference columns which are covered by the snapshot are searched and sorted
+ * like local fields, without resolving the reference, if the listener bean is registered; otherwise the annotation is
+ * ignored. Existing documents need a {@link DataTablesDenormalizationListener#backfill(Class) backfill}.
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DataTablesDenormalized {
+
+    /**
+     * The columns of the referenced document to copy, e.g. the {@code referenceColumns} and the
+     * {@code referenceOrderColumn} of the reference configuration.
+     */
+    String[] columns();
+
+    /**
+     * The type of the referenced documents if the field is a manual reference, i.e. holds the id of the referenced
+     * document (with the type it is stored with in the referenced collection) instead of a DBRef.
+     */
+    Class<?> referenceType() default Object.class;
+}
@@ -0,0 +1,130 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Indexes which the draws of a domain type are hinted to use, so that the query planner does not switch between the
+ * indexes of e.g. a tenant-scoped table from one draw to the next.
+ * <p>
+ * Register it as a bean to apply the hints to the {@link DataTablesRepository} of each registered domain type. An
+ * index is hinted if the pre-filtering criteria of the draw satisfy its {@code partialFilterExpression}, i.e. if they
+ * contain each of its conditions, or compare a field for equality which the expression requires to exist. Indexes
+ * without a {@code partialFilterExpression} are never hinted, the query planner chooses between them. The first
+ * matching index in the order of registration is used.
+ */
+public class DataTablesIndexHints {
+
+    private final MongoOperations mongoOperations;
+    private final QueryMapper queryMapper;
+    private final Map<Class<?>, List<String>> indexNames = new ConcurrentHashMap<>();
+    private final Map<String, Document> indexes = new ConcurrentHashMap<>();
+
+    public DataTablesIndexHints(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+        this.queryMapper = new QueryMapper(mongoOperations.getConverter());
+    }
+
+    /**
+     * @param domainType the entity type of the repository
+     * @param indexName  the name of an index of the entity collection (or of its materialized view)
+     * @return this instance
+     */
+    public DataTablesIndexHints register(Class<?> domainType, String indexName) {
+        indexNames.computeIfAbsent(domainType, type -> new CopyOnWriteArrayList<>()).add(indexName);
+        return this;
+    }
+
+    /**
+     * Forgets the index definitions read so far, e.g. after an index has been dropped or recreated.
+     */
+    public void refresh() {
+        indexes.clear();
+    }
+
+    /**
+     * @return the key of the first registered index whose partial filter expression is satisfied by the pre-filtering
+     * criteria, or null if there is none
+     */
+    Document getHint(Class<?> domainType, String collection, Criteria preFilteringCriteria) {
+        List<String> names = indexNames.getOrDefault(domainType, Collections.emptyList());
+        if (names.isEmpty() || preFilteringCriteria == null) {
+            return null;
+        }
+
+        List<Document> conditions = getConditions(queryMapper.getMappedObject(preFilteringCriteria.getCriteriaObject(), Optional.empty()));
+        for (String name : names) {
+            Optional<Document> index = getIndex(collection, name);
+            if (index.isPresent() && satisfies(conditions, index.get().get("partialFilterExpression", Document.class))) {
+                return index.get().get("key", Document.class);
+            }
+        }
+        return null;
+    }
+
+    private Optional<Document> getIndex(String collection, String name) {
+        Document cached = indexes.get(collection + ":" + name);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<Document> index = mongoOperations.execute(collection, c -> c.listIndexes().into(new ArrayList<>())).stream()
+                .filter(definition -> name.equals(definition.getString("name")))
+                .findFirst();
+        // a missing index is looked up again on the next draw, hinting it would fail the query
+        index.ifPresent(definition -> indexes.put(collection + ":" + name, definition));
+        return index;
+    }
+
+    /**
+     * @return the conditions of the filter, with the conditions of a top level $and flattened
+     */
+    private static List<Document> getConditions(Document filter) {
+        List<Document> conditions = new ArrayList<>();
+        filter.forEach((key, value) -> {
+            if ("$and".equals(key) && value instanceof List) {
+                ((List<?>) value).stream()
+                        .filter(Document.class::isInstance)
+                        .forEach(condition -> conditions.addAll(getConditions((Document) condition)));
+            } else {
+                conditions.add(new Document(key, value));
+            }
+        });
+        return conditions;
+    }
+
+    private static boolean satisfies(List<Document> conditions, Document partialFilterExpression) {
+        if (partialFilterExpression == null) {
+            return false;
+        }
+
+        return getConditions(partialFilterExpression).stream().allMatch(required -> {
+            String field = required.keySet().iterator().next();
+            Object value = required.get(field);
+            return conditions.stream().anyMatch(condition -> Objects.equals(condition.get(field), value)
+                    || isExistsCondition(value) && isEqualityCondition(condition.get(field)));
+        });
+    }
+
+    private static boolean isExistsCondition(Object value) {
+        return value instanceof Document && ((Document) value).size() == 1
+                && Boolean.TRUE.equals(((Document) value).get("$exists"));
+    }
+
+    private static boolean isEqualityCondition(Object value) {
+        return value != null && !(value instanceof Document && ((Document) value).keySet().stream().anyMatch(key -> key.startsWith("$")))
+                && !(value instanceof Pattern);
+    }
+}
@@ -1,7 +1,9 @@
 package org.springframework.data.mongodb.datatables;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mongodb.ReadPreference;
 import lombok.Data;
+import org.springframework.data.mongodb.core.query.Collation;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
@@ -10,7 +12,6 @@ import javax.validation.constraints.NotNull;
 import java.util.*;
 
 import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.toMap;
 
 @Data
 public class DataTablesInput {
@@ -67,17 +68,45 @@ public class DataTablesInput {
     @JsonIgnore
     private SearchConfiguration searchConfiguration;
 
+    /**
+     * Identifies the client session (and table, if a session shows several tables backed by the same collection)
+     * which issued this request. If set, a request which is overtaken by a newer draw of the same session is aborted
+     * and answered with an empty, superseded {@link DataTablesOutput}.
+     */
+    @JsonIgnore
+    private String sessionId;
+
+    /**
+     * Name of a {@link SearchConfiguration} registered for the domain type of the repository (see
+     * {@link DataTablesSearchConfigurations}), which is used instead of {@link #getSearchConfiguration()}.
+     */
+    @JsonIgnore
+    private String searchConfigurationName;
+
     public void setColumns(List<Column> columns) {
         this.columns = columns;
-        this.columnMap = columns.stream().collect(toMap(Column::getData, x -> x));
+        this.columnMap = null;
     }
 
-    public Optional<Column> getColumn(String columnName) {
-        if (columns.size() != columnMap.size()) {
-            this.columnMap = columns.stream().collect(toMap(Column::getData, x -> x));
+    /**
+     * @return the columns by their data, built on first access
+     */
+    public Map<String, Column> getColumnMap() {
+        if (columnMap == null || columns.size() != columnMap.size()) {
+            Map<String, Column> map = new HashMap<>(columns != null ? columns.size() * 2 : 16);
+            if (columns != null) {
+                for (Column column : columns) {
+                    map.put(column.getData(), column);
+                }
+            }
+            this.columnMap = map;
         }
 
-        return ofNullable(columnMap.get(columnName));
+        return columnMap;
+    }
+
+    public Optional<Column> getColumn(String columnName) {
+        return ofNullable(getColumnMap().get(columnName));
     }
 
     @Data
@@ -185,7 +214,45 @@ public class DataTablesInput {
 
         private Map<String, ColumnSearchConfiguration> columnSearchConfiguration = new HashMap<>();
 
+        /**
+         * Maximum number of referenced documents a search on a reference column may match to filter the documents by
+         * their reference ids ($in), which an index can serve. If a search matches more referenced documents, or if it
+         * is set to 0, the references of all documents are resolved with $lookup and filtered afterwards.
+         */
+        private int referenceKeyLimit = 1000;
+
+        /**
+         * Collation applied to the whole aggregation and to the filtered count, i.e. to the equality of
+         * {@link SearchType#EqualsIgnoreCase} columns as well as to the ordering. Set it to the collation of your
+         * indexes, so that they can be used for both. If it is null, locale "en" with strength 2 (case-insensitive) is
+         * used by the draws which search a {@link SearchType#EqualsIgnoreCase} column, and the other draws use the
+         * simple collation. The total count (recordsTotal) is always executed with the simple collation.
+         */
+        private Collation collation;
+
+        /**
+         * Read preference of the data of the draw, e.g. {@code ReadPreference.secondaryPreferred(90, TimeUnit.SECONDS)}.
+         * If it is null, the one registered in {@link DataTablesReadPreferences} or the one of the
+         * {@code MongoTemplate} is used.
+         */
+        private ReadPreference readPreference;
+
+        /**
+         * Read preference of the total and the filtered count of the draw. If it is null, the one registered in
+         * {@link DataTablesReadPreferences} or the read preference of the data is used.
+         */
+        private ReadPreference countReadPreference;
+
         public void addRefConfiguration(String data, String referenceCollection, List<String> referenceColumns, String referenceOrderColumn) {
+            addManualRefConfiguration(data, referenceCollection, null, referenceColumns, referenceOrderColumn);
+        }
+
+        /**
+         * Adds the configuration of a manual reference, i.e. a column which stores the value (or an array of values) of
+         * the {@code referenceForeignField} of the referenced documents, e.g. their ObjectId, instead of a DBRef.
+         */
+        public void addManualRefConfiguration(String data, String referenceCollection, String referenceForeignField,
+                                              List<String> referenceColumns, String referenceOrderColumn) {
             ColumnSearchConfiguration searchConfiguration;
             if (columnSearchConfiguration.containsKey(data)) {
                 searchConfiguration = columnSearchConfiguration.get(data);
@@ -196,6 +263,7 @@ public class DataTablesInput {
 
             searchConfiguration.setReference(true);
             searchConfiguration.setReferenceCollection(referenceCollection);
+            searchConfiguration.setReferenceForeignField(referenceForeignField);
             searchConfiguration.setReferenceColumns(referenceColumns);
             searchConfiguration.setReferenceOrderColumn(referenceOrderColumn);
         }
@@ -210,6 +278,11 @@ public class DataTablesInput {
             }
         }
 
+        public void setSearchType(String data, SearchType searchType, SearchType valueType) {
+            setSearchType(data, searchType);
+            columnSearchConfiguration.get(data).setValueType(valueType);
+        }
+
         @Data
         public static class ColumnSearchConfiguration {
             public static ColumnSearchConfiguration DEFAULT = new ColumnSearchConfiguration();
@@ -224,6 +297,12 @@ public class DataTablesInput {
              */
             private String referenceCollection;
 
+            /**
+             * If 'reference' is true and the column is a manual reference, this should be set to the field of the
+             * referenced documents which the column refers to, e.g. "_id". If it is null, the column is a DBRef.
+             */
+            private String referenceForeignField;
+
             /**
              * If 'reference' is true, this should include a list of names of all columns that should be searched
              */
@@ -239,6 +318,12 @@ public class DataTablesInput {
              */
             private SearchType searchType = SearchType.String;
 
+            /**
+             * If 'searchType' is SearchType.In, sets the type the values are converted to. Supported are String, Boolean,
+             * Integer, Long, Double, Decimal128, ObjectId and UUID.
+             */
+            private SearchType valueType = SearchType.String;
+
             /**
              * Attribute is used for date columns and allows for the following options and expressions:
              *
@@ -251,13 +336,53 @@ public class DataTablesInput {
              * If this value is null the UTC will be used
              */
             private String timezone;
+
+            /**
+             * @return a copy of this configuration, with an unmodifiable copy of the reference columns
+             */
+            ColumnSearchConfiguration copy() {
+                ColumnSearchConfiguration copy = new ColumnSearchConfiguration();
+                copy.setReference(reference);
+                copy.setReferenceCollection(referenceCollection);
+                copy.setReferenceForeignField(referenceForeignField);
+                copy.setReferenceColumns(referenceColumns != null ? Collections.unmodifiableList(new ArrayList<>(referenceColumns)) : null);
+                copy.setReferenceOrderColumn(referenceOrderColumn);
+                copy.setSearchType(searchType);
+                copy.setValueType(valueType);
+                copy.setTimezone(timezone);
+                return copy;
+            }
         }
     }
 
     public enum SearchType {
         String,
         Boolean,
+        /**
+         * Numeric types accept a value for equality ("5" or "=5"), a comparison ("&gt;5", "&gt;=5", "&lt;5", "&lt;=5")
+         * or an inclusive range ("10..20", "10..", "..20"), compared against the raw field.
+         */
         Integer,
-        Date
+        Long,
+        Double,
+        Decimal128,
+        Date,
+        /**
+         * Identifier types accept a single value or a comma-separated list of values, compared for equality (or with
+         * $in) against the raw field. Invalid values are ignored.
+         */
+        ObjectId,
+        UUID,
+        /**
+         * Accepts a list of values separated by "|" or ",", e.g. from a select filter, compared with $in against the raw
+         * field. The values are converted to the {@link SearchConfiguration.ColumnSearchConfiguration#getValueType()}
+         * of the column.
+         */
+        In,
+        /**
+         * Exact but case-insensitive match, evaluated by a strength 2 collation (see
+         * {@link SearchConfiguration#getCollation()}) instead of a regular expression.
+         */
+        EqualsIgnoreCase
     }
 }
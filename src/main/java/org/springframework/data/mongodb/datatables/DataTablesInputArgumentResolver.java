@@ -0,0 +1,94 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.springframework.core.Conventions;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.lang.annotation.Annotation;
+import java.util.Map;
+
+/**
+ * Resolves {@link DataTablesInput} controller method arguments from the request parameters sent by the DataTables
+ * plugin with {@link DataTablesInputParser}, so that neither {@code jquery.spring-friendly.js} nor the property
+ * binding of the data binder is needed. Arguments annotated with {@link RequestBody} are left to the message
+ * converters.
+ * <p>
+ * Arguments annotated with {@code @Valid} or {@link Validated} are validated by the validator of the data binder,
+ * like a model attribute: the errors are passed to an {@link Errors} parameter following the argument, or rejected
+ * with a {@link MethodArgumentNotValidException}. Parameters with an invalid value (e.g. a non-numeric
+ * {@code start}) are rejected with a {@link ServerWebInputException}, i.e. 400 Bad Request.
+ * <p>
+ * Requires spring-web. Register it with {@code WebMvcConfigurer#addArgumentResolvers}.
+ */
+public class DataTablesInputArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return DataTablesInput.class.equals(parameter.getParameterType()) && !parameter.hasParameterAnnotation(RequestBody.class);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) throws Exception {
+        DataTablesInput input;
+        try {
+            input = DataTablesInputParser.parse(webRequest.getParameterMap());
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException(e.getMessage(), parameter, e);
+        }
+
+        if (binderFactory != null) {
+            String name = Conventions.getVariableNameForParameter(parameter);
+            WebDataBinder binder = binderFactory.createBinder(webRequest, input, name);
+            if (validate(binder, parameter)) {
+                BindingResult bindingResult = binder.getBindingResult();
+                if (bindingResult.hasErrors() && !hasErrorsParameter(parameter)) {
+                    throw new MethodArgumentNotValidException(parameter, bindingResult);
+                }
+                if (mavContainer != null) {
+                    // the Errors parameter is resolved from the last attribute of the model
+                    Map<String, Object> bindingResultModel = bindingResult.getModel();
+                    mavContainer.removeAttributes(bindingResultModel);
+                    mavContainer.addAllAttributes(bindingResultModel);
+                }
+            }
+        }
+
+        return input;
+    }
+
+    /**
+     * Validates the input if the parameter is annotated with {@link Validated} or {@code @Valid} (or another annotation
+     * whose name starts with "Valid"), with the validation hints of the annotation.
+     *
+     * @return true if the input has been validated
+     */
+    private static boolean validate(WebDataBinder binder, MethodParameter parameter) {
+        for (Annotation annotation : parameter.getParameterAnnotations()) {
+            Validated validated = AnnotationUtils.getAnnotation(annotation, Validated.class);
+            if (validated != null || annotation.annotationType().getSimpleName().startsWith("Valid")) {
+                Object hints = validated != null ? validated.value() : AnnotationUtils.getValue(annotation);
+                binder.validate(hints instanceof Object[] ? (Object[]) hints : new Object[]{hints});
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasErrorsParameter(MethodParameter parameter) {
+        Class<?>[] parameterTypes = parameter.getExecutable().getParameterTypes();
+        int next = parameter.getParameterIndex() + 1;
+        return next < parameterTypes.length && Errors.class.isAssignableFrom(parameterTypes[next]);
+    }
+}
@@ -0,0 +1,237 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Decodes the <a href="https://datatables.net/manual/server-side#Sent-parameters">parameters</a> sent by the
+ * DataTables plugin (e.g. {@code columns[3][search][value]}, or {@code columns[3].search.value} when using
+ * {@code jquery.spring-friendly.js}) into a {@link DataTablesInput}, without a data binder.
+ * <p>
+ * The columns and orders are collected by their index. If indexes are missing, the columns are listed without gaps,
+ * and the orders refer to the columns by their position in that list.
+ */
+public final class DataTablesInputParser {
+
+    private static final String COLUMNS = "columns";
+    private static final String ORDER = "order";
+
+    private DataTablesInputParser() {
+    }
+
+    /**
+     * @param queryString the raw, URL-encoded query string (or form body), without the leading "?"
+     * @return the decoded {@link DataTablesInput}
+     * @throws IllegalArgumentException if a parameter has an invalid value
+     */
+    public static DataTablesInput parse(String queryString) {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+
+        int start = 0;
+        while (start < queryString.length()) {
+            int end = queryString.indexOf('&', start);
+            if (end < 0) {
+                end = queryString.length();
+            }
+
+            int separator = queryString.indexOf('=', start);
+            if (separator > start && separator < end) {
+                parameters.putIfAbsent(decode(queryString.substring(start, separator)),
+                        new String[]{decode(queryString.substring(separator + 1, end))});
+            }
+            start = end + 1;
+        }
+
+        return parse(parameters);
+    }
+
+    /**
+     * @param parameters the request parameters, e.g. from {@code ServletRequest#getParameterMap()}
+     * @return the decoded {@link DataTablesInput}
+     * @throws IllegalArgumentException if a parameter has an invalid value
+     */
+    public static DataTablesInput parse(Map<String, String[]> parameters) {
+        // sparse, as the indexes are sent by the client
+        Map<Integer, DataTablesInput.Column> columns = new TreeMap<>();
+        Map<Integer, DataTablesInput.Order> orders = new TreeMap<>();
+        DataTablesInput input = new DataTablesInput();
+        input.setSearch(new DataTablesInput.Search("", false));
+
+        for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+            String key = parameter.getKey();
+            String value = parameter.getValue() != null && parameter.getValue().length > 0 ? parameter.getValue()[0] : null;
+            if (value == null) {
+                continue;
+            }
+
+            if (key.startsWith(COLUMNS)) {
+                int index = parseIndex(key, COLUMNS.length());
+                if (index >= 0) {
+                    DataTablesInput.Column column = columns.computeIfAbsent(index, i -> {
+                        DataTablesInput.Column newColumn = new DataTablesInput.Column();
+                        newColumn.setSearch(new DataTablesInput.Search("", false));
+                        return newColumn;
+                    });
+                    setColumnProperty(column, getProperty(key, COLUMNS.length()), value);
+                }
+            } else if (key.startsWith(ORDER)) {
+                int index = parseIndex(key, ORDER.length());
+                if (index >= 0) {
+                    DataTablesInput.Order order = orders.computeIfAbsent(index, i -> new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc));
+                    setOrderProperty(order, key, getProperty(key, ORDER.length()), value);
+                }
+            } else {
+                switch (key) {
+                    case "draw":
+                        input.setDraw(parseInt(key, value));
+                        break;
+                    case "start":
+                        input.setStart(parseInt(key, value));
+                        break;
+                    case "length":
+                        input.setLength(parseInt(key, value));
+                        break;
+                    case "search[value]":
+                    case "search.value":
+                        input.getSearch().setValue(value);
+                        break;
+                    case "search[regex]":
+                    case "search.regex":
+                        input.getSearch().setRegex(Boolean.parseBoolean(value));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        List<DataTablesInput.Column> columnList = new ArrayList<>(columns.size());
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (Map.Entry<Integer, DataTablesInput.Column> column : columns.entrySet()) {
+            positions.put(column.getKey(), columnList.size());
+            columnList.add(column.getValue());
+        }
+        input.setColumns(columnList);
+
+        // an order on a column which has not been sent is dropped
+        List<DataTablesInput.Order> orderList = new ArrayList<>(orders.size());
+        for (DataTablesInput.Order order : orders.values()) {
+            Integer position = positions.get(order.getColumn());
+            if (position != null) {
+                order.setColumn(position);
+                orderList.add(order);
+            }
+        }
+        input.setOrder(orderList);
+
+        return input;
+    }
+
+    private static void setColumnProperty(DataTablesInput.Column column, String property, String value) {
+        switch (property) {
+            case "data":
+                column.setData(value);
+                break;
+            case "name":
+                column.setName(value);
+                break;
+            case "searchable":
+                column.setSearchable(Boolean.parseBoolean(value));
+                break;
+            case "orderable":
+                column.setOrderable(Boolean.parseBoolean(value));
+                break;
+            case "search.value":
+                column.getSearch().setValue(value);
+                break;
+            case "search.regex":
+                column.getSearch().setRegex(Boolean.parseBoolean(value));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void setOrderProperty(DataTablesInput.Order order, String key, String property, String value) {
+        switch (property) {
+            case "column":
+                order.setColumn(parseInt(key, value));
+                break;
+            case "dir":
+                try {
+                    order.setDir(DataTablesInput.Order.Direction.valueOf(value));
+                } catch (IllegalArgumentException e) {
+                    throw invalidValue(key, value, e);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int parseInt(String key, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw invalidValue(key, value, e);
+        }
+    }
+
+    private static IllegalArgumentException invalidValue(String key, String value, Exception cause) {
+        return new IllegalArgumentException("Invalid value '" + value + "' of parameter '" + key + "'", cause);
+    }
+
+    /**
+     * @return the index of e.g. "columns[3][data]" starting at the "[" at {@code offset}, or -1 if there is none
+     */
+    private static int parseIndex(String key, int offset) {
+        if (key.length() <= offset || key.charAt(offset) != '[') {
+            return -1;
+        }
+
+        int index = 0;
+        int i = offset + 1;
+        for (; i < key.length() && key.charAt(i) != ']'; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9' || index > (Integer.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+
+        return i > offset + 1 && i < key.length() ? index : -1;
+    }
+
+    /**
+     * @return the property path following the index, e.g. "search.value" for "columns[3][search][value]" as well as
+     * for "columns[3].search.value"
+     */
+    private static String getProperty(String key, int offset) {
+        StringBuilder property = new StringBuilder(key.length() - offset);
+        for (int i = key.indexOf(']', offset) + 1; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '[' || c == '.') {
+                if (property.length() > 0) {
+                    property.append('.');
+                }
+            } else if (c != ']') {
+                property.append(c);
+            }
+        }
+        return property.toString();
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
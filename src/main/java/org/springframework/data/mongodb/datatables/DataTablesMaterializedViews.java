@@ -0,0 +1,451 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Maintains collections which hold the documents of an entity together with snapshots of their referenced documents
+ * (like {@link DataTablesDenormalized}, but without changing the entity collection), so that the
+ * {@link DataTablesRepository} of the entity can search and sort by reference columns without $lookup.
+ * <p>
+ * Register it as a bean and register the views with {@link #register(Class, String)}. Once a view has been built with
+ * {@link #refresh(Class)}, the repository of the entity reads from the view instead of the entity collection. Documents
+ * saved or deleted through {@code save}, {@code insert} or {@code delete} (and the documents referencing them) are
+ * updated in the view on the given {@link Executor}, so the view lags slightly behind these writes; the writes which
+ * arrive while an update is running are coalesced into the next one. If an update fails, the view is rebuilt with
+ * the next update instead. Other changes (e.g. {@code updateMulti}, or deletes of referenced documents by other
+ * criteria than their ids) are picked up by the next full refresh, e.g. on a schedule.
+ * <p>
+ * A full refresh and the updates of a view do not run concurrently, so that the full refresh does not replace the
+ * documents updated while it ran with their previous state.
+ */
+public class DataTablesMaterializedViews extends AbstractMongoEventListener<Object> {
+
+    private static final Log LOG = LogFactory.getLog(DataTablesMaterializedViews.class);
+
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    private final MongoOperations mongoOperations;
+    private final Executor executor;
+    private final Map<Class<?>, View> views = new ConcurrentHashMap<>();
+    private final Queue<PendingRefresh> pendingRefreshes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * @param mongoOperations the {@link MongoOperations} the views are built with
+     * @param executor        the {@link Executor} the views are updated on after a write, e.g. a single background
+     *                        thread
+     */
+    public DataTablesMaterializedViews(MongoOperations mongoOperations, Executor executor) {
+        this.mongoOperations = mongoOperations;
+        this.executor = executor;
+    }
+
+    /**
+     * @param domainType     the entity type
+     * @param viewCollection the collection holding the joined documents
+     * @return the view, to add the joined reference fields to
+     */
+    public View register(Class<?> domainType, String viewCollection) {
+        View view = new View(domainType, mongoOperations.getCollectionName(domainType), viewCollection);
+        views.put(domainType, view);
+        return view;
+    }
+
+    /**
+     * Rebuilds all registered views.
+     */
+    public void refreshAll() {
+        views.keySet().forEach(this::refresh);
+    }
+
+    /**
+     * Rebuilds the view of the given type, by replacing the view collection. The indexes of the view collection are
+     * kept.
+     */
+    public void refresh(Class<?> domainType) {
+        rebuild(getRegisteredView(domainType));
+    }
+
+    /**
+     * Drops the view collection of the given type, so that its repository reads from the entity collection again
+     * until the next {@link #refresh(Class)}.
+     */
+    public void drop(Class<?> domainType) {
+        View view = getRegisteredView(domainType);
+        synchronized (view.lock) {
+            view.available = false;
+            view.checked = true;
+            view.stale = false;
+            mongoOperations.dropCollection(view.collection);
+        }
+    }
+
+    /**
+     * Updates the documents with the given ids in the view of the given type.
+     */
+    public void refresh(Class<?> domainType, Collection<?> ids) {
+        refresh(getRegisteredView(domainType), ids);
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Document document = event.getDocument();
+        if (document == null || document.get("_id") == null) {
+            return;
+        }
+
+        Object id = document.get("_id");
+        for (View view : views.values()) {
+            if (view.sourceCollection.equals(event.getCollectionName())) {
+                enqueue(view, () -> Collections.singleton(id));
+            }
+            enqueueReferencingDocuments(view, event.getCollectionName(), Collections.singleton(id));
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        Document query = event.getDocument();
+        if (query == null) {
+            return;
+        }
+
+        Collection<?> deletedIds = DenormalizedFields.getDeletedIds(query);
+        for (View view : views.values()) {
+            if (view.sourceCollection.equals(event.getCollectionName())) {
+                // the deleted documents are no longer found in the entity collection, so the refresh removes them
+                enqueue(view, () -> findIds(new BasicQuery(query), view));
+            }
+            if (deletedIds != null) {
+                enqueueReferencingDocuments(view, event.getCollectionName(), deletedIds);
+            }
+        }
+    }
+
+    /**
+     * @return the view of the given type, or null if there is none or if it has not been built yet
+     */
+    View getView(Class<?> domainType) {
+        View view = views.get(domainType);
+        return view != null && isAvailable(view) ? view : null;
+    }
+
+    private boolean isAvailable(View view) {
+        if (!view.checked) {
+            // the view may have been built before the application started
+            view.available = view.available || mongoOperations.collectionExists(view.collection);
+            view.checked = true;
+        }
+        return view.available;
+    }
+
+    private View getRegisteredView(Class<?> domainType) {
+        View view = views.get(domainType);
+        if (view == null) {
+            throw new IllegalArgumentException("No materialized view registered for " + domainType.getName());
+        }
+        return view;
+    }
+
+    private void rebuild(View view) {
+        synchronized (view.lock) {
+            List<AggregationOperation> operations = new ArrayList<>(view.createJoinOperations());
+            operations.add(Aggregation.out(view.collection));
+            mongoOperations.aggregate(Aggregation.newAggregation(operations)
+                            .withOptions(AggregationOptions.builder().allowDiskUse(true).build()),
+                    view.sourceCollection, Document.class);
+            view.available = true;
+            view.checked = true;
+            view.stale = false;
+        }
+    }
+
+    private void refresh(View view, Collection<?> ids) {
+        if (ids.isEmpty() || !isAvailable(view)) {
+            return;
+        }
+        synchronized (view.lock) {
+            refreshBatches(view, ids);
+        }
+    }
+
+    private void refreshBatches(View view, Collection<?> ids) {
+        if (ids.size() > REFRESH_BATCH_SIZE) {
+            List<?> idList = new ArrayList<>(ids);
+            for (int i = 0; i < idList.size(); i += REFRESH_BATCH_SIZE) {
+                refreshBatches(view, idList.subList(i, Math.min(i + REFRESH_BATCH_SIZE, idList.size())));
+            }
+            return;
+        }
+
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(Aggregation.match(where("_id").in(ids)));
+        operations.addAll(view.createJoinOperations());
+        List<Document> documents = mongoOperations.aggregate(Aggregation.newAggregation(operations), view.sourceCollection, Document.class)
+                .getMappedResults();
+
+        Set<Object> removedIds = new HashSet<>(ids);
+        for (Document document : documents) {
+            mongoOperations.save(document, view.collection);
+            removedIds.remove(document.get("_id"));
+        }
+        if (!removedIds.isEmpty()) {
+            mongoOperations.remove(query(where("_id").in(removedIds)), view.collection);
+        }
+    }
+
+    /**
+     * Enqueues the refresh of the documents of the view which reference the given documents.
+     *
+     * @param referenceIds the ids of the referenced documents, or an empty collection for all documents which
+     *                     reference one
+     */
+    private void enqueueReferencingDocuments(View view, String referenceCollection, Collection<?> referenceIds) {
+        for (DenormalizedFields.DenormalizedField join : view.joins.values()) {
+            if (mongoOperations.getCollectionName(join.getReferenceType()).equals(referenceCollection)) {
+                enqueue(view, () -> findIds(query(referenceIds.isEmpty()
+                        ? where(join.getFieldName()).exists(true)
+                        : where(join.getKeyField()).in(referenceIds)), view));
+            }
+        }
+    }
+
+    private List<Object> findIds(Query query, View view) {
+        query.fields().include("_id");
+        return mongoOperations.find(query, Document.class, view.collection).stream()
+                .map(document -> document.get("_id"))
+                .collect(toList());
+    }
+
+    /**
+     * Enqueues the refresh of the documents of the view with the ids returned by the supplier, and starts to update the
+     * views unless an update is running already.
+     */
+    private void enqueue(View view, Supplier<Collection<?>> ids) {
+        pendingRefreshes.add(new PendingRefresh(view, ids));
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Refreshes the documents of all pending refreshes, once per document, and starts over if refreshes have been
+     * enqueued in the meantime. A view whose refresh fails is marked as stale, and rebuilt on the next drain.
+     */
+    private void drain() {
+        try {
+            Map<View, Set<Object>> ids = new LinkedHashMap<>();
+            PendingRefresh pendingRefresh;
+            while ((pendingRefresh = pendingRefreshes.poll()) != null) {
+                View view = pendingRefresh.view;
+                Set<Object> viewIds = ids.computeIfAbsent(view, v -> new LinkedHashSet<>());
+                try {
+                    if (!view.stale && isAvailable(view)) {
+                        viewIds.addAll(pendingRefresh.ids.get());
+                    }
+                } catch (RuntimeException e) {
+                    failed(view, e);
+                }
+            }
+
+            ids.forEach((view, viewIds) -> {
+                try {
+                    if (view.stale) {
+                        rebuild(view);
+                    } else {
+                        refresh(view, viewIds);
+                    }
+                } catch (RuntimeException e) {
+                    failed(view, e);
+                }
+            });
+        } finally {
+            draining.set(false);
+            if (!pendingRefreshes.isEmpty() && draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    private static void failed(View view, RuntimeException e) {
+        // the changes of the failed refresh are lost, so the whole view is rebuilt
+        view.stale = true;
+        LOG.warn("Failed to update the materialized view " + view.collection + ", it is rebuilt with the next update", e);
+    }
+
+    private static final class PendingRefresh {
+        private final View view;
+        private final Supplier<Collection<?>> ids;
+
+        private PendingRefresh(View view, Supplier<Collection<?>> ids) {
+            this.view = view;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * A view of an entity type, with the reference fields which are joined.
+     */
+    public final class View {
+        private final Class<?> domainType;
+        private final String sourceCollection;
+        private final String collection;
+        private final Map<String, DenormalizedFields.DenormalizedField> joins = new LinkedHashMap<>();
+        private volatile boolean available;
+        private volatile boolean checked;
+        private volatile boolean stale;
+        /**
+         * Serializes the full refresh and the updates of the view.
+         */
+        private final Object lock = new Object();
+
+        private View(Class<?> domainType, String sourceCollection, String collection) {
+            this.domainType = domainType;
+            this.sourceCollection = sourceCollection;
+            this.collection = collection;
+        }
+
+        /**
+         * Adds a snapshot of the given columns of the referenced document to the view.
+         *
+         * @param field   a field of the entity annotated with {@link DBRef}, which is not a collection
+         * @param columns the columns of the referenced document, i.e. the {@code referenceColumns} and the
+         *                {@code referenceOrderColumn} of the search configuration
+         * @return this view
+         * @throws IllegalArgumentException if the field is not a single {@link DBRef}
+         */
+        public View join(String field, String... columns) {
+            Field referenceField = ReflectionUtils.findField(domainType, field);
+            if (referenceField == null || !referenceField.isAnnotationPresent(DBRef.class)
+                    || Collection.class.isAssignableFrom(referenceField.getType())) {
+                throw new IllegalArgumentException("Field '" + field + "' of " + domainType.getName() + " is not a single DBRef.");
+            }
+
+            joins.put(field, new DenormalizedFields.DenormalizedField(field, getFieldName(field), referenceField.getType(), false, columns));
+            return this;
+        }
+
+        /**
+         * Adds a snapshot of the given columns of the document referenced manually, i.e. by its id, to the view.
+         *
+         * @param field         a field of the entity holding the id of the referenced document, which is not a
+         *                      collection
+         * @param referenceType the type of the referenced documents
+         * @param columns       the columns of the referenced document, i.e. the {@code referenceColumns} and the
+         *                      {@code referenceOrderColumn} of the search configuration
+         * @return this view
+         * @throws IllegalArgumentException if the field does not exist or is a collection
+         */
+        public View join(String field, Class<?> referenceType, String... columns) {
+            Field referenceField = ReflectionUtils.findField(domainType, field);
+            if (referenceField == null || Collection.class.isAssignableFrom(referenceField.getType())) {
+                throw new IllegalArgumentException("Field '" + field + "' of " + domainType.getName() + " is not a single manual reference.");
+            }
+
+            joins.put(field, new DenormalizedFields.DenormalizedField(field, getFieldName(field), referenceType, true, columns));
+            return this;
+        }
+
+        private String getFieldName(String field) {
+            return DenormalizedFields.getFieldName(mongoOperations.getConverter().getMappingContext(), domainType, field);
+        }
+
+        String getCollection() {
+            return collection;
+        }
+
+        /**
+         * @param entityFields the denormalized fields of the entity, whose snapshots are copied from the entity
+         *                     collection
+         * @return the given fields and the snapshots of the view, by field name
+         */
+        Map<String, DenormalizedFields.DenormalizedField> getDenormalizedFields(Map<String, DenormalizedFields.DenormalizedField> entityFields) {
+            Map<String, DenormalizedFields.DenormalizedField> fields = new LinkedHashMap<>(entityFields);
+            fields.putAll(joins);
+            return fields;
+        }
+
+        /**
+         * Writes the snapshot of each joined field: the referenced document is looked up by the id of the DBRef (or by
+         * the id held by a manual reference), and reduced to the joined columns.
+         */
+        private List<AggregationOperation> createJoinOperations() {
+            List<AggregationOperation> operations = new ArrayList<>();
+            for (DenormalizedFields.DenormalizedField join : joins.values()) {
+                String snapshotField = join.getSnapshotField();
+                String idField = join.isManualReference() ? join.getFieldName() : snapshotField + "_id";
+
+                if (!join.isManualReference()) {
+                    operations.add(context -> new Document("$addFields", new Document(idField, new Document("$let", new Document()
+                            .append("vars", new Document("ref", new Document("$arrayElemAt",
+                                    Arrays.asList(new Document("$objectToArray", "$" + join.getFieldName()), 1))))
+                            .append("in", "$$ref.v")))));
+                }
+                operations.add(Aggregation.lookup(mongoOperations.getCollectionName(join.getReferenceType()), idField, "_id", snapshotField));
+
+                Document snapshot = new Document();
+                join.getColumns().forEach(column -> putPath(snapshot, column, "$$reference." + column));
+                operations.add(context -> new Document("$addFields", new Document(snapshotField, new Document("$arrayElemAt", Arrays.asList(
+                        new Document("$map", new Document("input", "$" + snapshotField).append("as", "reference").append("in", snapshot)),
+                        0)))));
+                if (!join.isManualReference()) {
+                    operations.add(context -> new Document("$project", new Document(idField, 0)));
+                }
+            }
+            return operations;
+        }
+    }
+
+    /**
+     * Puts the value into the document, with nested documents for a dotted path.
+     */
+    private static void putPath(Document document, String path, Object value) {
+        int dot = path.indexOf('.');
+        if (dot < 0) {
+            document.put(path, value);
+            return;
+        }
+
+        Object nested = document.get(path.substring(0, dot));
+        if (!(nested instanceof Document)) {
+            nested = new Document();
+            document.put(path.substring(0, dot), nested);
+        }
+        putPath((Document) nested, path.substring(dot + 1), value);
+    }
+}
@@ -1,5 +1,6 @@
 package org.springframework.data.mongodb.datatables;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonView;
 import lombok.Data;
 
@@ -47,6 +48,14 @@ public final class DataTablesOutput<T> {
     @JsonView(View.class)
     private String error;
 
+    /**
+     * Whether the request was aborted because a newer draw of the same session arrived (see
+     * {@link DataTablesInput#getSessionId()}). DataTables discards such responses anyway, as their draw counter is
+     * outdated.
+     */
+    @JsonIgnore
+    private boolean superseded;
+
     public interface View {
     }
 
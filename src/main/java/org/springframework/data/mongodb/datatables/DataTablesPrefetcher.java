@@ -0,0 +1,133 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Fetches the next page of a table on the given {@link Executor} once a page has been served, so that paging forward
+ * is answered from memory. A prefetched page is keyed by the filtered and sorted documents (i.e. the search, order
+ * and criteria of the query, not the draw or the session) and its offset, and is handed out once.
+ * <p>
+ * Register it as a bean to enable it. At most {@code maxConcurrentPrefetches} pages are fetched at the same time:
+ * further prefetches are skipped rather than queued, so that they never delay the foreground requests. Prefetched
+ * pages are dropped after {@code timeToLive}, or when more than {@code maxPages} pages are kept. Changes to the
+ * collection are not visible to a prefetched page, so the time to live should be short.
+ */
+public class DataTablesPrefetcher {
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final long timeToLiveMillis;
+    private final Map<String, Prefetch> prefetches;
+
+    /**
+     * @param executor                the {@link Executor} the pages are fetched on
+     * @param maxConcurrentPrefetches the maximum number of pages fetched at the same time
+     * @param maxPages                the maximum number of prefetched pages kept
+     * @param timeToLive              the time after which a prefetched page is dropped
+     */
+    public DataTablesPrefetcher(Executor executor, int maxConcurrentPrefetches, int maxPages, Duration timeToLive) {
+        if (maxConcurrentPrefetches < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent prefetches must be positive.");
+        }
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrentPrefetches);
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.prefetches = new LinkedHashMap<String, Prefetch>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Prefetch> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    /**
+     * Takes the prefetched page out of the cache, waiting for it if it is still being fetched.
+     *
+     * @return the page, or null if it has not been prefetched, has expired or could not be fetched
+     */
+    @SuppressWarnings("unchecked")
+    <R> Page<R> take(String key) {
+        Prefetch prefetch;
+        synchronized (prefetches) {
+            prefetch = prefetches.remove(key);
+        }
+        if (prefetch == null || prefetch.expires < System.currentTimeMillis()) {
+            return null;
+        }
+
+        try {
+            return (Page<R>) prefetch.page.join();
+        } catch (RuntimeException e) {
+            // the page is read again by the request itself
+            return null;
+        }
+    }
+
+    /**
+     * Fetches a page in the background, unless it is already prefetched or the concurrency limit is reached.
+     */
+    <R> void prefetch(String key, Supplier<Page<R>> loader) {
+        synchronized (prefetches) {
+            if (prefetches.containsKey(key)) {
+                return;
+            }
+        }
+        if (!permits.tryAcquire()) {
+            return;
+        }
+
+        CompletableFuture<Page<?>> page;
+        try {
+            page = CompletableFuture.supplyAsync(loader::get, executor);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return;
+        }
+        page.whenComplete((result, error) -> permits.release());
+
+        synchronized (prefetches) {
+            prefetches.put(key, new Prefetch(page, System.currentTimeMillis() + timeToLiveMillis));
+        }
+    }
+
+    private static final class Prefetch {
+        private final CompletableFuture<Page<?>> page;
+        private final long expires;
+
+        private Prefetch(CompletableFuture<Page<?>> page, long expires) {
+            this.page = page;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * The rows of a prefetched page, with the filtered count of the query.
+     */
+    static final class Page<R> {
+        private final List<R> data;
+        private final long recordsFiltered;
+
+        Page(List<R> data, long recordsFiltered) {
+            this.data = data;
+            this.recordsFiltered = recordsFiltered;
+        }
+
+        List<R> getData() {
+            return data;
+        }
+
+        long getRecordsFiltered() {
+            return recordsFiltered;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.springframework.data.mongodb.datatables;
+
+import com.mongodb.ReadPreference;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read preferences of the draws per domain type, e.g. to read the data of a table from secondaries, which is tolerable
+ * for browsing if they lag a few seconds behind.
+ * <p>
+ * Register it as a bean to apply the read preferences to the {@link DataTablesRepository} of each registered domain
+ * type. They can be overridden per call with {@link DataTablesInput.SearchConfiguration#setReadPreference} and
+ * {@link DataTablesInput.SearchConfiguration#setCountReadPreference}.
+ */
+public class DataTablesReadPreferences {
+
+    private final Map<Class<?>, ReadPreference[]> readPreferences = new ConcurrentHashMap<>();
+
+    /**
+     * @param domainType     the entity type of the repository
+     * @param readPreference the read preference of the data and the counts
+     * @return this instance
+     */
+    public DataTablesReadPreferences register(Class<?> domainType, ReadPreference readPreference) {
+        return register(domainType, readPreference, null);
+    }
+
+    /**
+     * @param domainType          the entity type of the repository
+     * @param readPreference      the read preference of the data, or null for the one of the {@code MongoTemplate}
+     * @param countReadPreference the read preference of the counts, or null for the one of the data
+     * @return this instance
+     */
+    public DataTablesReadPreferences register(Class<?> domainType, ReadPreference readPreference, ReadPreference countReadPreference) {
+        readPreferences.put(domainType, new ReadPreference[]{readPreference, countReadPreference});
+        return this;
+    }
+
+    ReadPreference getReadPreference(Class<?> domainType) {
+        ReadPreference[] preferences = readPreferences.get(domainType);
+        return preferences != null ? preferences[0] : null;
+    }
+
+    ReadPreference getCountReadPreference(Class<?> domainType) {
+        ReadPreference[] preferences = readPreferences.get(domainType);
+        return preferences != null ? preferences[1] : null;
+    }
+}
@@ -0,0 +1,187 @@
+package org.springframework.data.mongodb.datatables;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps small reference collections (like a product catalog) in memory, so that searching and sorting by reference
+ * columns does not have to query the referenced collection on every draw.
+ * <p>
+ * Register it as a bean to enable it for all {@link DataTablesRepository DataTablesRepositories}. Only the reference
+ * columns and the reference order column of the documents are cached, and collections with more than
+ * {@code maxDocuments} documents are not cached at all. Entries expire after {@code timeToLive}, or as soon as the
+ * collection changes if {@link #listenForChanges(MessageListenerContainer)} is used (requires a replica set).
+ */
+public class DataTablesReferenceCache {
+
+    private final int maxDocuments;
+    private final long timeToLiveMillis;
+    private final Map<String, Entry> entries;
+    private final Set<String> watchedCollections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Incremented on every invalidation of a collection (or of all collections), so that a value which was loaded
+     * concurrently to a change of the collection is not kept. Guarded by the lock of the entries.
+     */
+    private final Map<String, Long> generations = new HashMap<>();
+    private long generation;
+
+    private MessageListenerContainer messageListenerContainer;
+
+    /**
+     * @param maxDocuments the maximum number of documents of a reference collection to be cached
+     * @param timeToLive   the time after which a cached collection is read again
+     */
+    public DataTablesReferenceCache(int maxDocuments, Duration timeToLive) {
+        this(maxDocuments, timeToLive, 64);
+    }
+
+    /**
+     * @param maxDocuments the maximum number of documents of a reference collection to be cached
+     * @param timeToLive   the time after which a cached collection is read again
+     * @param maxEntries   the maximum number of cached collections (per set of cached columns)
+     */
+    public DataTablesReferenceCache(int maxDocuments, Duration timeToLive, int maxEntries) {
+        this.maxDocuments = maxDocuments;
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Invalidates the cached documents of a collection as soon as it changes, using a change stream. The container
+     * has to be running, which is the case if it is a bean.
+     *
+     * @param messageListenerContainer the container to register the change stream subscriptions with
+     */
+    public void listenForChanges(MessageListenerContainer messageListenerContainer) {
+        this.messageListenerContainer = messageListenerContainer;
+    }
+
+    public void invalidate(String collection) {
+        synchronized (entries) {
+            generations.merge(collection, 1L, Long::sum);
+            entries.values().removeIf(entry -> entry.collection.equals(collection));
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    int getMaxDocuments() {
+        return maxDocuments;
+    }
+
+    /**
+     * @param mongoOperations the operations to read the collection with, if it is not cached yet
+     * @param collection      the reference collection
+     * @param fields          the fields of the documents to be cached, besides _id
+     * @return the (projected) documents of the collection, or empty if it contains more than {@code maxDocuments}
+     */
+    Optional<List<Document>> getDocuments(MongoOperations mongoOperations, String collection, Collection<String> fields) {
+        return get(collection, "documents:" + new TreeSet<>(fields), () -> {
+            Query query = new Query().limit(maxDocuments + 1);
+            fields.forEach(field -> query.fields().include(field));
+            return mongoOperations.find(query, Document.class, collection);
+        });
+    }
+
+    /**
+     * @param collection the reference collection
+     * @param key        identifies the cached value within the collection
+     * @param loader     loads the value, limited to {@code maxDocuments + 1} elements
+     * @return the cached or loaded value, or empty if it has more than {@code maxDocuments} elements
+     */
+    <V> Optional<List<V>> get(String collection, String key, Supplier<List<V>> loader) {
+        String entryKey = collection + ":" + key;
+
+        Entry entry;
+        long loadedGeneration;
+        synchronized (entries) {
+            entry = entries.get(entryKey);
+            loadedGeneration = getGeneration(collection);
+        }
+
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            watch(collection);
+
+            List<V> values = loader.get();
+            entry = new Entry(collection, values.size() > maxDocuments ? null : Collections.unmodifiableList(values),
+                    System.currentTimeMillis() + timeToLiveMillis);
+            synchronized (entries) {
+                if (getGeneration(collection) == loadedGeneration) {
+                    entries.put(entryKey, entry);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        List<V> values = (List<V>) entry.values;
+        return Optional.ofNullable(values);
+    }
+
+    /**
+     * @return a value which changes whenever the collection is invalidated
+     */
+    private long getGeneration(String collection) {
+        return generation + generations.getOrDefault(collection, 0L);
+    }
+
+    private void watch(String collection) {
+        if (messageListenerContainer == null || !watchedCollections.add(collection)) {
+            return;
+        }
+
+        MessageListener<ChangeStreamDocument<Document>, Document> listener = message -> invalidate(collection);
+        ChangeStreamRequest<Document> request = ChangeStreamRequest.builder(listener)
+                .collection(collection)
+                .build();
+
+        // if the change stream fails, changes may have been missed, and the change stream has ended, so it is
+        // registered again on the next read of the collection
+        messageListenerContainer.register(request, Document.class, error -> {
+            watchedCollections.remove(collection);
+            invalidate(collection);
+        });
+    }
+
+    private static final class Entry {
+        private final String collection;
+        private final List<?> values;
+        private final long expiresAt;
+
+        private Entry(String collection, List<?> values, long expiresAt) {
+            this.collection = collection;
+            this.values = values;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -61,4 +61,29 @@ public interface DataTablesRepository<T, ID extends Serializable> extends MongoR
     <R> DataTablesOutput<R> findAll(DataTablesInput input, Criteria additionalCriteria,
                                     Criteria preFilteringCriteria, Function<T, R> converter);
 
+    /**
+     * Returns the filtered list for the given {@link DataTablesInput}, with the documents mapped directly to the given
+     * type instead of the entity type.
+     *
+     * @param input      the {@link DataTablesInput} mapped from the Ajax request
+     * @param resultType the type the documents are mapped to, e.g. a DTO
+     * @param <R>        the Return entity type
+     * @return a {@link DataTablesOutput}
+     */
+    <R> DataTablesOutput<R> findAll(DataTablesInput input, Class<R> resultType);
+
+    /**
+     * Returns the filtered list for the given {@link DataTablesInput}, with the documents mapped directly to the given
+     * type instead of the entity type.
+     *
+     * @param input                the {@link DataTablesInput} mapped from the Ajax request
+     * @param additionalCriteria   an additional {@link Criteria} to apply to the query (with an "AND" clause)
+     * @param preFilteringCriteria a pre-filtering {@link Criteria} to apply to the query (with an "AND" clause)
+     * @param resultType           the type the documents are mapped to, e.g. a DTO
+     * @param <R>                  the Return entity type
+     * @return a {@link DataTablesOutput}
+     */
+    <R> DataTablesOutput<R> findAll(DataTablesInput input, Criteria additionalCriteria,
+                                    Criteria preFilteringCriteria, Class<R> resultType);
+
 }
@@ -1,9 +1,12 @@
 package org.springframework.data.mongodb.datatables;
 
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
 import org.springframework.data.mongodb.repository.support.MongoRepositoryFactoryBean;
+import org.springframework.data.repository.core.RepositoryInformation;
 import org.springframework.data.repository.core.RepositoryMetadata;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
 
@@ -12,24 +15,36 @@ import java.io.Serializable;
 public final class DataTablesRepositoryFactoryBean<R extends MongoRepository<T, ID>, T, ID extends Serializable>
         extends MongoRepositoryFactoryBean<R, T, ID> {
 
+    private BeanFactory beanFactory;
+
     public DataTablesRepositoryFactoryBean(Class<? extends R> repositoryInterface) {
         super(repositoryInterface);
     }
 
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        super.setBeanFactory(beanFactory);
+        this.beanFactory = beanFactory;
+    }
+
     @Override
     protected RepositoryFactorySupport getFactoryInstance(MongoOperations operations) {
-        return new DataTablesRepositoryFactory(operations);
+        return new DataTablesRepositoryFactory(operations, beanFactory);
     }
 
     private static class DataTablesRepositoryFactory extends MongoRepositoryFactory {
 
+        private final BeanFactory beanFactory;
+
         /**
          * Creates a new {@link MongoRepositoryFactory} with the given {@link MongoOperations}.
          *
          * @param mongoOperations must not be {@literal null}.
+         * @param beanFactory     to look up the optional features of the repositories, may be {@literal null}.
          */
-        DataTablesRepositoryFactory(MongoOperations mongoOperations) {
+        DataTablesRepositoryFactory(MongoOperations mongoOperations, BeanFactory beanFactory) {
             super(mongoOperations);
+            this.beanFactory = beanFactory;
         }
 
         @Override
@@ -41,5 +56,29 @@ public final class DataTablesRepositoryFactoryBean<R extends MongoRepository<T,
                 return super.getRepositoryBaseClass(metadata);
             }
         }
+
+        @Override
+        protected Object getTargetRepository(RepositoryInformation information) {
+            Object repository = super.getTargetRepository(information);
+
+            if (repository instanceof DataTablesRepositoryImpl && beanFactory != null) {
+                DataTablesRepositoryImpl<?, ?> dataTablesRepository = (DataTablesRepositoryImpl<?, ?>) repository;
+                dataTablesRepository.setReferenceCache(beanFactory.getBeanProvider(DataTablesReferenceCache.class).getIfAvailable());
+                dataTablesRepository.setSearchConfigurations(beanFactory.getBeanProvider(DataTablesSearchConfigurations.class).getIfAvailable());
+                dataTablesRepository.setConversionExecutor(beanFactory.getBeanProvider(DataTablesConversionExecutor.class).getIfAvailable());
+                dataTablesRepository.setCursorPool(beanFactory.getBeanProvider(DataTablesCursorPool.class).getIfAvailable());
+                dataTablesRepository.setPrefetcher(beanFactory.getBeanProvider(DataTablesPrefetcher.class).getIfAvailable());
+                dataTablesRepository.setCounterService(beanFactory.getBeanProvider(DataTablesCounterService.class).getIfAvailable());
+                dataTablesRepository.setMaterializedViews(beanFactory.getBeanProvider(DataTablesMaterializedViews.class).getIfAvailable());
+                dataTablesRepository.setReadPreferences(beanFactory.getBeanProvider(DataTablesReadPreferences.class).getIfAvailable());
+                dataTablesRepository.setIndexHints(beanFactory.getBeanProvider(DataTablesIndexHints.class).getIfAvailable());
+                dataTablesRepository.setTenantResolver(beanFactory.getBeanProvider(DataTablesTenantResolver.class).getIfAvailable());
+                dataTablesRepository.setTenantCounts(beanFactory.getBeanProvider(DataTablesTenantCounts.class).getIfAvailable());
+                dataTablesRepository.setSearchableEventListener(beanFactory.getBeanProvider(DataTablesSearchableEventListener.class).getIfAvailable());
+                dataTablesRepository.setDenormalizationListener(beanFactory.getBeanProvider(DataTablesDenormalizationListener.class).getIfAvailable());
+            }
+
+            return repository;
+        }
     }
 }
@@ -1,18 +1,38 @@
 package org.springframework.data.mongodb.datatables;
 
+import com.mongodb.ReadPreference;
 import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.AssociationHandler;
+import org.springframework.data.mapping.PropertyHandler;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
 import org.springframework.data.mongodb.repository.support.SimpleMongoRepository;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.util.CloseableIterator;
 
+import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
-import static java.util.stream.Collectors.toList;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
 final class DataTablesRepositoryImpl<T, ID extends Serializable> extends SimpleMongoRepository<T, ID>
@@ -20,6 +40,23 @@ final class DataTablesRepositoryImpl<T, ID extends Serializable> extends SimpleM
 
     private final MongoEntityInformation<T, ID> metadata;
     private final MongoOperations mongoOperations;
+    private final DrawSupersession drawSupersession = new DrawSupersession();
+    private final ReferenceKeyResolver referenceKeyResolver;
+    private Map<String, CompiledSearchConfiguration> registeredSearchConfigurations = Collections.emptyMap();
+    private DataTablesConversionExecutor conversionExecutor;
+    private DataTablesCursorPool cursorPool;
+    private DataTablesPrefetcher prefetcher;
+    private DataTablesCounterService counterService;
+    private DataTablesMaterializedViews materializedViews;
+    private ReadPreference defaultReadPreference;
+    private ReadPreference defaultCountReadPreference;
+    private DataTablesIndexHints indexHints;
+    private DataTablesTenantResolver tenantResolver;
+    private DataTablesTenantCounts tenantCounts;
+    private boolean normalizedCopies;
+    private boolean denormalizedSnapshots;
+    private final ReadPreferenceOperations readOperations;
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
 
     /**
      * Creates a new {@link SimpleMongoRepository} for the given {@link MongoEntityInformation} and {@link MongoTemplate}.
@@ -31,21 +68,106 @@ final class DataTablesRepositoryImpl<T, ID extends Serializable> extends SimpleM
         super(metadata, mongoOperations);
         this.metadata = metadata;
         this.mongoOperations = mongoOperations;
+        this.referenceKeyResolver = new ReferenceKeyResolver(mongoOperations);
+        this.readOperations = new ReadPreferenceOperations(mongoOperations);
+    }
+
+    void setReferenceCache(DataTablesReferenceCache referenceCache) {
+        referenceKeyResolver.setReferenceCache(referenceCache);
+    }
+
+    void setConversionExecutor(DataTablesConversionExecutor conversionExecutor) {
+        this.conversionExecutor = conversionExecutor;
+    }
+
+    void setCursorPool(DataTablesCursorPool cursorPool) {
+        this.cursorPool = cursorPool;
+    }
+
+    void setPrefetcher(DataTablesPrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    void setCounterService(DataTablesCounterService counterService) {
+        this.counterService = counterService;
+    }
+
+    void setMaterializedViews(DataTablesMaterializedViews materializedViews) {
+        this.materializedViews = materializedViews;
+    }
+
+    void setReadPreferences(DataTablesReadPreferences readPreferences) {
+        if (readPreferences != null) {
+            defaultReadPreference = readPreferences.getReadPreference(metadata.getJavaType());
+            defaultCountReadPreference = readPreferences.getCountReadPreference(metadata.getJavaType());
+        }
+    }
+
+    void setIndexHints(DataTablesIndexHints indexHints) {
+        this.indexHints = indexHints;
+    }
+
+    void setTenantResolver(DataTablesTenantResolver tenantResolver) {
+        this.tenantResolver = tenantResolver;
+    }
+
+    void setTenantCounts(DataTablesTenantCounts tenantCounts) {
+        this.tenantCounts = tenantCounts;
+    }
+
+    /**
+     * Searches the normalized copies of the fields annotated with {@link DataTablesSearchable}, if the listener which
+     * maintains them is registered. Without it, the fields themselves are searched.
+     */
+    void setSearchableEventListener(DataTablesSearchableEventListener searchableEventListener) {
+        this.normalizedCopies = searchableEventListener != null;
+        if (normalizedCopies) {
+            ensureNormalizedIndexes();
+        }
+    }
+
+    /**
+     * Searches and sorts by the snapshots of the fields annotated with {@link DataTablesDenormalized}, if the listener
+     * which maintains them is registered. Without it, the references are resolved.
+     */
+    void setDenormalizationListener(DataTablesDenormalizationListener denormalizationListener) {
+        this.denormalizedSnapshots = denormalizationListener != null;
+    }
+
+    /**
+     * Compiles the search configurations registered for the domain type of this repository.
+     *
+     * @throws IllegalArgumentException if a configuration is invalid
+     */
+    void setSearchConfigurations(DataTablesSearchConfigurations searchConfigurations) {
+        if (searchConfigurations == null) {
+            return;
+        }
+
+        Map<String, CompiledSearchConfiguration> compiledConfigurations = new HashMap<>();
+        searchConfigurations.getConfigurations(metadata.getJavaType()).forEach((name, searchConfiguration) -> {
+            try {
+                compiledConfigurations.put(name, CompiledSearchConfiguration.of(searchConfiguration, metadata.getJavaType()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid search configuration '" + name + "' of " + metadata.getJavaType().getName() + ": " + e.getMessage(), e);
+            }
+        });
+        this.registeredSearchConfigurations = compiledConfigurations;
     }
 
     @Override
     public DataTablesOutput<T> findAll(DataTablesInput input) {
-        return findAll(input, null, null, null);
+        return findAll(input, null, null, metadata.getJavaType(), null, null);
     }
 
     @Override
     public DataTablesOutput<T> findAll(DataTablesInput input, Criteria additionalCriteria) {
-        return findAll(input, additionalCriteria, null, null);
+        return findAll(input, additionalCriteria, null, metadata.getJavaType(), null, null);
     }
 
     @Override
     public DataTablesOutput<T> findAll(DataTablesInput input, Criteria additionalCriteria, Criteria preFilteringCriteria) {
-        return findAll(input, additionalCriteria, preFilteringCriteria, null);
+        return findAll(input, additionalCriteria, preFilteringCriteria, metadata.getJavaType(), null, null);
     }
 
     @Override
@@ -55,39 +177,176 @@ final class DataTablesRepositoryImpl<T, ID extends Serializable> extends SimpleM
 
     @Override
     public <R> DataTablesOutput<R> findAll(DataTablesInput input, Criteria additionalCriteria, Criteria preFilteringCriteria, Function<T, R> converter) {
+        return findAll(input, additionalCriteria, preFilteringCriteria, metadata.getJavaType(), null, converter);
+    }
+
+    @Override
+    public <R> DataTablesOutput<R> findAll(DataTablesInput input, Class<R> resultType) {
+        return findAll(input, null, null, resultType);
+    }
+
+    @Override
+    public <R> DataTablesOutput<R> findAll(DataTablesInput input, Criteria additionalCriteria, Criteria preFilteringCriteria, Class<R> resultType) {
+        if (resultType.isAssignableFrom(metadata.getJavaType())) {
+            return findAll(input, additionalCriteria, preFilteringCriteria, metadata.getJavaType(), null, resultType::cast);
+        }
+
+        if (resultType.isInterface()) {
+            // the entities are read with the fields of a closed projection only, and wrapped in a proxy
+            ProjectionInformation projectionInformation = projectionFactory.getProjectionInformation(resultType);
+            Collection<String> fields = projectionInformation.isClosed() ? getProjectedFields(projectionInformation) : null;
+            return findAll(input, additionalCriteria, preFilteringCriteria, metadata.getJavaType(), fields,
+                    entity -> projectionFactory.createProjection(resultType, entity));
+        }
+
+        // a DTO is read with its own fields
+        return findAll(input, additionalCriteria, preFilteringCriteria, resultType, getDocumentFields(resultType), null);
+    }
+
+    /**
+     * @param readType  the type the documents are mapped to
+     * @param fields    the document fields to read, or null to read the whole documents
+     * @param converter the {@link Function} to apply to the mapped documents, or null to return them as they are
+     */
+    private <S, R> DataTablesOutput<R> findAll(DataTablesInput input, Criteria additionalCriteria, Criteria preFilteringCriteria,
+                                               Class<S> readType, Collection<String> fields, Function<S, R> converter) {
         DataTablesOutput<R> output = new DataTablesOutput<>();
         output.setDraw(input.getDraw());
         if (input.getLength() == 0) {
             return output;
         }
 
-        try {
-            if (containsReferenceColumn(input, preFilteringCriteria) || containsReferenceColumn(input, additionalCriteria)) {
+        try (DrawSupersession.Draw draw = drawSupersession.begin(input, metadata.getCollectionName())) {
+            DataTablesMaterializedViews.View view = materializedViews != null ? materializedViews.getView(metadata.getJavaType()) : null;
+            String collection = view != null ? view.getCollection() : metadata.getCollectionName();
+
+            String tenantField = tenantResolver != null ? tenantResolver.getTenantField(metadata.getJavaType()) : null;
+            Object tenant = null;
+            if (tenantField != null) {
+                tenant = BatchTenant.resolve(tenantResolver);
+                if (tenant == null) {
+                    throw new IllegalStateException("No tenant resolved for " + metadata.getJavaType().getName());
+                }
+                preFilteringCriteria = preFilteringCriteria != null
+                        ? new Criteria().andOperator(where(tenantField).is(tenant), preFilteringCriteria)
+                        : where(tenantField).is(tenant);
+            }
+            // the cursors and the prefetched pages of a tenant are not shared with other tenants
+            String partition = tenant != null ? collection + ":" + tenant : collection;
+
+            CompiledSearchConfiguration searchConfiguration = getSearchConfiguration(input);
+            if (containsReferenceColumn(searchConfiguration, preFilteringCriteria) || containsReferenceColumn(searchConfiguration, additionalCriteria)) {
                 throw new IllegalArgumentException("Additional criteria and prefilter criteria cannot use a reference column.");
             }
 
-            long recordsTotal = count(preFilteringCriteria);
+            ReadPreference dataReadPreference = searchConfiguration.getReadPreference() != null
+                    ? searchConfiguration.getReadPreference() : defaultReadPreference;
+            ReadPreference countReadPreference = searchConfiguration.getCountReadPreference() != null
+                    ? searchConfiguration.getCountReadPreference()
+                    : defaultCountReadPreference != null ? defaultCountReadPreference : dataReadPreference;
+
+            Document hint = indexHints != null ? indexHints.getHint(metadata.getJavaType(), collection, preFilteringCriteria) : null;
+
+            long recordsTotal = count(collection, preFilteringCriteria, countReadPreference, hint, tenantField, tenant);
             output.setRecordsTotal(recordsTotal);
             if (recordsTotal == 0) {
                 return output;
             }
+            if (draw.isSuperseded()) {
+                return superseded(output);
+            }
 
-            DataTablesCriteria refCriteria = new DataTablesCriteria(input, additionalCriteria, preFilteringCriteria, metadata.getJavaType());
+            Map<String, DenormalizedFields.DenormalizedField> denormalizedFields = denormalizedSnapshots
+                    ? DenormalizedFields.getDenormalizedFields(mongoOperations.getConverter().getMappingContext(), metadata.getJavaType())
+                    : Collections.emptyMap();
+            if (view != null) {
+                denormalizedFields = view.getDenormalizedFields(denormalizedFields);
+            }
+            DataTablesCriteria<T> refCriteria = new DataTablesCriteria<>(input, searchConfiguration, additionalCriteria, preFilteringCriteria,
+                    metadata.getJavaType(), referenceKeyResolver, denormalizedFields,
+                    normalizedCopies ? mongoOperations.getConverter().getMappingContext() : null);
 
-            AggregationResults<Document> result = mongoOperations.aggregate(refCriteria.toFilteredCountAggregation(), metadata.getCollectionName(), Document.class);
+            String fingerprint = cursorPool != null || prefetcher != null ? refCriteria.fingerprint() : null;
+            if (fingerprint != null) {
+                fingerprint = readType.getName() + ":" + fields + ":" + fingerprint;
+            }
+            String cursorKey = null;
+            String cursorFingerprint = null;
+            if (cursorPool != null && input.getSessionId() != null && input.getLength() > 0 && fingerprint != null) {
+                cursorKey = partition + ":" + input.getSessionId();
+                cursorFingerprint = fingerprint;
+            }
+            String prefetchKey = null;
+            if (prefetcher != null && cursorKey == null && input.getLength() > 0 && fingerprint != null) {
+                prefetchKey = partition + ":" + fingerprint + ":" + input.getLength();
+                DataTablesPrefetcher.Page<S> page = prefetcher.take(prefetchKey + ":" + input.getStart());
+                if (page != null) {
+                    // the rows are prefetched as read, so that callers with different converters can share them
+                    ConversionPipeline<S, R> pipeline = new ConversionPipeline<>(converter, conversionExecutor);
+                    page.getData().forEach(pipeline::add);
+                    output.setRecordsFiltered(page.getRecordsFiltered());
+                    output.setData(pipeline.finish());
+                    prefetchNextPage(prefetchKey, collection, dataReadPreference, hint, refCriteria, input, page.getRecordsFiltered(), readType, fields);
+                    return output;
+                }
+            }
+            DataTablesCursorPool.Cursor cursor = cursorKey != null ? cursorPool.acquire(cursorKey, cursorFingerprint) : null;
 
             int recordsFiltered = 0;
 
-            if (result.getUniqueMappedResult() != null) {
-                recordsFiltered = (Integer) result.getUniqueMappedResult().get("filtered_count");
+            if (cursor != null) {
+                // the query did not change since the cursor was opened, so neither did the filtered count
+                recordsFiltered = (int) cursor.getRecordsFiltered();
+            } else if (!refCriteria.isFiltered()) {
+                recordsFiltered = (int) recordsTotal;
+            } else {
+                List<Document> result = readOperations.aggregate(countReadPreference, hint, refCriteria.toFilteredCountAggregation(), collection, Document.class);
+
+                if (!result.isEmpty()) {
+                    recordsFiltered = (Integer) result.get(0).get("filtered_count");
+                }
             }
             output.setRecordsFiltered(recordsFiltered);
             if (recordsFiltered == 0) {
                 return output;
             }
+            if (draw.isSuperseded()) {
+                if (cursor != null) {
+                    cursorPool.release(cursorKey, cursor);
+                }
+                return superseded(output);
+            }
 
-            AggregationResults<T> data = mongoOperations.aggregate(refCriteria.toAggregation(), metadata.getCollectionName(), metadata.getJavaType());
-            output.setData(converter == null ? (List<R>) data.getMappedResults() : data.getMappedResults().stream().map(converter).collect(toList()));
+            if (cursorKey != null) {
+                List<R> data = readFromCursor(cursorKey, cursorFingerprint, cursor, collection, dataReadPreference, hint, refCriteria, input, recordsFiltered, readType, fields, converter, draw);
+                if (data == null) {
+                    return superseded(output);
+                }
+                output.setData(data);
+                return output;
+            }
+
+            Aggregation aggregation = fields != null ? refCriteria.toAggregation(fields) : refCriteria.toAggregation();
+
+            ConversionPipeline<S, R> pipeline = new ConversionPipeline<>(converter, conversionExecutor);
+            if (draw.isTracked() || converter != null) {
+                // the results are converted while they are read, and closing the iterator early kills the cursor,
+                // so that a superseded draw stops fetching batches
+                try (CloseableIterator<S> iterator = readOperations.aggregateStream(dataReadPreference, hint, aggregation, collection, readType)) {
+                    while (iterator.hasNext()) {
+                        if (draw.isSuperseded()) {
+                            return superseded(output);
+                        }
+                        pipeline.add(iterator.next());
+                    }
+                }
+            } else {
+                pipeline.addAll(readOperations.aggregate(dataReadPreference, hint, aggregation, collection, readType));
+            }
+            output.setData(pipeline.finish());
+            if (prefetchKey != null && !draw.isSuperseded()) {
+                prefetchNextPage(prefetchKey, collection, dataReadPreference, hint, refCriteria, input, recordsFiltered, readType, fields);
+            }
 
         } catch (Exception e) {
             output.setError(e.toString());
@@ -96,20 +355,163 @@ final class DataTablesRepositoryImpl<T, ID extends Serializable> extends SimpleM
         return output;
     }
 
-    private long count(Criteria preFilteringCriteria) {
-        if (preFilteringCriteria == null) {
-            return count();
-        } else {
-            return mongoOperations.count(query(preFilteringCriteria), metadata.getCollectionName());
+    /**
+     * Fetches the page following the requested one in the background, if there is one. The rows are kept as read,
+     * i.e. before the converter of the request is applied.
+     */
+    private <S> void prefetchNextPage(String prefetchKey, String collection, ReadPreference readPreference, Document hint, DataTablesCriteria<T> refCriteria, DataTablesInput input, long recordsFiltered,
+                                      Class<S> readType, Collection<String> fields) {
+        long nextStart = (long) input.getStart() + input.getLength();
+        if (nextStart >= recordsFiltered) {
+            return;
+        }
+
+        prefetcher.prefetch(prefetchKey + ":" + nextStart, () -> {
+            List<S> rows = readOperations.aggregate(readPreference, hint, refCriteria.toNextPageAggregation(fields), collection, readType);
+            return new DataTablesPrefetcher.Page<>(rows, recordsFiltered);
+        });
+    }
+
+    /**
+     * Reads the requested page from the pooled cursor of the session, or from a new cursor if the page is not within
+     * reach of the pooled one.
+     *
+     * @return the rows of the page, or null if the draw has been superseded
+     */
+    private <S, R> List<R> readFromCursor(String cursorKey, String cursorFingerprint, DataTablesCursorPool.Cursor cursor,
+                                          String collection, ReadPreference readPreference, Document hint, DataTablesCriteria<T> refCriteria,
+                                          DataTablesInput input, long recordsFiltered, Class<S> readType, Collection<String> fields, Function<S, R> converter,
+                                          DrawSupersession.Draw draw) {
+        if (cursor == null || !cursor.seek(input.getStart(), input.getLength())) {
+            if (cursor != null) {
+                cursor.close();
+            }
+            Aggregation aggregation = refCriteria.toCursorAggregation(fields, cursorPool.getWindow(input.getLength()));
+            cursor = cursorPool.open(cursorFingerprint, readOperations.aggregateStream(readPreference, hint, aggregation, collection, readType),
+                    input.getStart(), input.getLength(), recordsFiltered);
+        }
+
+        try {
+            ConversionPipeline<S, R> pipeline = new ConversionPipeline<>(converter, conversionExecutor);
+            for (int i = 0; i < input.getLength(); i++) {
+                if (draw.isSuperseded()) {
+                    return null;
+                }
+                S row = cursor.next();
+                if (row == null) {
+                    break;
+                }
+                pipeline.add(row);
+            }
+            return pipeline.finish();
+        } catch (RuntimeException e) {
+            cursor.close();
+            cursor = null;
+            throw e;
+        } finally {
+            if (cursor != null) {
+                cursorPool.release(cursorKey, cursor);
+            }
+        }
+    }
+
+    private static <R> DataTablesOutput<R> superseded(DataTablesOutput<R> output) {
+        output.setRecordsTotal(0);
+        output.setRecordsFiltered(0);
+        output.setData(Collections.emptyList());
+        output.setSuperseded(true);
+        return output;
+    }
+
+    /**
+     * Counts the documents matching the pre-filtering criteria, i.e. the recordsTotal, with the simple collation: it
+     * does not depend on the searches of the draw, so the maintained and the cached counts can be used.
+     */
+    private long count(String collection, Criteria preFilteringCriteria, ReadPreference readPreference, Document hint,
+                       String tenantField, Object tenant) {
+        Supplier<Long> exactCounter = () -> {
+            if (readPreference != null || hint != null) {
+                return readOperations.count(readPreference, hint, preFilteringCriteria, collection);
+            } else if (preFilteringCriteria == null) {
+                return collection.equals(metadata.getCollectionName()) ? count() : mongoOperations.count(new Query(), collection);
+            } else {
+                return mongoOperations.count(query(preFilteringCriteria), collection);
+            }
+        };
+        Supplier<Long> tenantCounter = tenantCounts != null && tenant != null
+                ? () -> tenantCounts.count(collection, tenantField, tenant, preFilteringCriteria, exactCounter)
+                : exactCounter;
+        return SharedCounts.count(collection, preFilteringCriteria, counterService != null
+                ? () -> counterService.count(collection, preFilteringCriteria, tenantCounter)
+                : tenantCounter);
+    }
+
+    /**
+     * Creates the indexes of the normalized copies. Documents saved before the annotation was added have no normalized
+     * copy, so they are not found by a search until they have been saved again or
+     * {@link DataTablesSearchableEventListener#backfill(Class)} has been run.
+     */
+    private void ensureNormalizedIndexes() {
+        SearchableFields.getSearchableFields(metadata.getJavaType()).forEach((field, searchable) -> {
+            if (searchable.normalized() && searchable.indexed()) {
+                mongoOperations.indexOps(metadata.getCollectionName())
+                        .ensureIndex(new Index(SearchableFields.normalizedField(mongoOperations.getConverter().getMappingContext(),
+                                metadata.getJavaType(), field), Sort.Direction.ASC));
+            }
+        });
+    }
+
+    /**
+     * @return the document fields of the properties of a closed interface projection, or null if a property is not a
+     * property of the entity
+     */
+    private Collection<String> getProjectedFields(ProjectionInformation projectionInformation) {
+        MongoPersistentEntity<?> entity = mongoOperations.getConverter().getMappingContext().getRequiredPersistentEntity(metadata.getJavaType());
+
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add("_id");
+        for (PropertyDescriptor property : projectionInformation.getInputProperties()) {
+            MongoPersistentProperty persistentProperty = entity.getPersistentProperty(property.getName());
+            if (persistentProperty == null) {
+                return null;
+            }
+            fields.add(persistentProperty.getFieldName());
+        }
+        return fields;
+    }
+
+    /**
+     * @return the document fields of all properties of the type
+     */
+    private Collection<String> getDocumentFields(Class<?> type) {
+        MongoPersistentEntity<?> entity = mongoOperations.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add("_id");
+        entity.doWithProperties((PropertyHandler<MongoPersistentProperty>) property -> fields.add(property.getFieldName()));
+        entity.doWithAssociations((AssociationHandler<MongoPersistentProperty>) association -> fields.add(association.getInverse().getFieldName()));
+        return fields;
+    }
+
+    private CompiledSearchConfiguration getSearchConfiguration(DataTablesInput input) {
+        if (input.getSearchConfigurationName() == null) {
+            return CompiledSearchConfiguration.of(input.getSearchConfiguration(), metadata.getJavaType());
+        }
+
+        CompiledSearchConfiguration searchConfiguration = registeredSearchConfigurations.get(input.getSearchConfigurationName());
+        if (searchConfiguration == null) {
+            throw new IllegalArgumentException("No search configuration named '" + input.getSearchConfigurationName()
+                    + "' is registered for " + metadata.getJavaType().getName());
         }
+        return searchConfiguration;
     }
 
-    private boolean containsReferenceColumn(DataTablesInput input, Criteria criteria) {
-        if (criteria == null || input.getSearchConfiguration() == null) {
+    private boolean containsReferenceColumn(CompiledSearchConfiguration searchConfiguration, Criteria criteria) {
+        if (criteria == null) {
             return false;
         }
 
-        return input.getSearchConfiguration().getColumnSearchConfiguration().entrySet()
+        return searchConfiguration.getColumnSearchConfiguration().entrySet()
                 .stream()
                 .anyMatch(c -> c.getValue().isReference() && criteria.getCriteriaObject().containsKey(c.getKey()));
     }
@@ -0,0 +1,47 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of named {@link DataTablesInput.SearchConfiguration}s per domain type, e.g. one per table of the UI.
+ * <p>
+ * When registered as a bean, the configurations are validated and compiled once when the repositories are created,
+ * and a request selects one with {@link DataTablesInput#setSearchConfigurationName(String)} instead of attaching a
+ * {@link DataTablesInput.SearchConfiguration}. A configuration must not be changed after it has been registered.
+ */
+public class DataTablesSearchConfigurations {
+
+    private final Map<Class<?>, Map<String, DataTablesInput.SearchConfiguration>> configurations = new ConcurrentHashMap<>();
+
+    /**
+     * @param domainType          the domain type of the repository the configuration is used with
+     * @param name                the name requests refer to the configuration by
+     * @param searchConfiguration the configuration
+     * @return this registry
+     */
+    public DataTablesSearchConfigurations register(Class<?> domainType, String name, DataTablesInput.SearchConfiguration searchConfiguration) {
+        Map<String, DataTablesInput.SearchConfiguration> domainConfigurations =
+                configurations.computeIfAbsent(domainType, type -> Collections.synchronizedMap(new LinkedHashMap<>()));
+        if (domainConfigurations.putIfAbsent(name, searchConfiguration) != null) {
+            throw new IllegalArgumentException("A search configuration named '" + name + "' is already registered for " + domainType.getName());
+        }
+        return this;
+    }
+
+    /**
+     * @return the configurations registered for the domain type, by name
+     */
+    Map<String, DataTablesInput.SearchConfiguration> getConfigurations(Class<?> domainType) {
+        Map<String, DataTablesInput.SearchConfiguration> domainConfigurations = configurations.get(domainType);
+        if (domainConfigurations == null) {
+            return Collections.emptyMap();
+        }
+
+        synchronized (domainConfigurations) {
+            return new LinkedHashMap<>(domainConfigurations);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity field whose search should not rely on a case-insensitive regular expression.
+ * <p>
+ * If {@link #normalized()} is true, a lowercase, accent-folded copy of the value is stored next to the field (with the
+ * suffix {@value SearchableFields#NORMALIZED_SUFFIX}) by the {@link DataTablesSearchableEventListener}, and
+ * non-regex searches on the column are run as case-sensitive pattern against that copy, which can be served by an
+ * index.
+ * <p>
+ * The copies are only searched if the {@link DataTablesSearchableEventListener} is registered as a bean; otherwise
+ * the field itself is searched with a case-insensitive regular expression. Documents saved before the listener was
+ * registered or the annotation was added have no copy, and are not found until
+ * {@link DataTablesSearchableEventListener#backfill(Class)} has been run for the entity type.
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DataTablesSearchable {
+
+    /**
+     * Whether a normalized (lowercase, without diacritics) copy of the value should be maintained and searched.
+     */
+    boolean normalized() default false;
+
+    /**
+     * Whether an index on the normalized copy should be created on startup.
+     */
+    boolean indexed() default false;
+}
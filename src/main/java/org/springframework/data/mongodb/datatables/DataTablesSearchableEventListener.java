@@ -0,0 +1,128 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Maintains the normalized copies of fields annotated with {@code @DataTablesSearchable(normalized = true)}.
+ * <p>
+ * Register it as a bean to enable the feature. Only documents written through {@code save} or {@code insert} are
+ * covered; documents changed with update operations have to maintain the normalized copy themselves. Documents saved
+ * before the annotation was added get their normalized copy with {@link #backfill(Class)}.
+ */
+public class DataTablesSearchableEventListener extends AbstractMongoEventListener<Object> {
+
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final MongoOperations mongoOperations;
+    private final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext;
+
+    /**
+     * Creates a listener which resolves the field names with the default mapping, without support for
+     * {@link #backfill(Class)}.
+     */
+    public DataTablesSearchableEventListener() {
+        this.mongoOperations = null;
+        this.mappingContext = new MongoMappingContext();
+    }
+
+    /**
+     * @param mongoOperations the template whose mapping resolves the field names, and which is used for
+     *                        {@link #backfill(Class)}
+     */
+    public DataTablesSearchableEventListener(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+        this.mappingContext = mongoOperations.getConverter().getMappingContext();
+    }
+
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<Object> event) {
+        Object source = event.getSource();
+        Document document = event.getDocument();
+        if (document == null) {
+            return;
+        }
+
+        for (Map.Entry<String, DataTablesSearchable> field : SearchableFields.getSearchableFields(source.getClass()).entrySet()) {
+            if (!field.getValue().normalized()) {
+                continue;
+            }
+
+            String normalizedField = SearchableFields.normalizedField(mappingContext, source.getClass(), field.getKey());
+            Object value = SearchableFields.readField(source, field.getKey());
+            if (value instanceof String) {
+                document.put(normalizedField, SearchableFields.normalize((String) value));
+            } else {
+                document.remove(normalizedField);
+            }
+        }
+    }
+
+    /**
+     * Writes the normalized copies which are missing in the documents of the given type, e.g. after the annotation
+     * was added. The documents are streamed and updated in batches.
+     *
+     * @param type the entity type
+     * @return the number of updated documents
+     * @throws IllegalStateException if the listener has been created without {@link MongoOperations}
+     */
+    public long backfill(Class<?> type) {
+        if (mongoOperations == null) {
+            throw new IllegalStateException("The backfill requires a listener created with MongoOperations.");
+        }
+
+        String collection = mongoOperations.getCollectionName(type);
+        MongoPersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(type);
+        long updated = 0;
+
+        for (Map.Entry<String, DataTablesSearchable> field : SearchableFields.getSearchableFields(type).entrySet()) {
+            MongoPersistentProperty property = entity.getPersistentProperty(field.getKey());
+            if (!field.getValue().normalized() || property == null) {
+                continue;
+            }
+
+            String fieldName = property.getFieldName();
+            String normalizedField = SearchableFields.normalizedField(mappingContext, type, field.getKey());
+            Query query = query(where(fieldName).type(2).and(normalizedField).exists(false));
+            query.fields().include(fieldName);
+
+            try (CloseableIterator<Document> documents = mongoOperations.stream(query, Document.class, collection)) {
+                BulkOperations bulkOperations = null;
+                int pending = 0;
+                while (documents.hasNext()) {
+                    Document document = documents.next();
+                    if (bulkOperations == null) {
+                        bulkOperations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+                    }
+                    bulkOperations.updateOne(query(where("_id").is(document.get("_id"))),
+                            new Update().set(normalizedField, SearchableFields.normalize(document.getString(fieldName))));
+                    if (++pending == BACKFILL_BATCH_SIZE) {
+                        updated += bulkOperations.execute().getModifiedCount();
+                        bulkOperations = null;
+                        pending = 0;
+                    }
+                }
+                if (bulkOperations != null) {
+                    updated += bulkOperations.execute().getModifiedCount();
+                }
+            }
+        }
+
+        return updated;
+    }
+}
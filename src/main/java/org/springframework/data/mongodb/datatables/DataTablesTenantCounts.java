@@ -0,0 +1,162 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caches the total counts of the draws per tenant (see {@link DataTablesTenantResolver}), so that the documents of a
+ * tenant are not counted on every draw.
+ * <p>
+ * Register it as a bean together with a {@link DataTablesTenantResolver}. The counts of a tenant are invalidated when
+ * one of its documents is saved or deleted through {@code save}, {@code insert} or {@code delete} (including the
+ * methods of the repositories); a delete by a query without the tenant field invalidates the counts of all tenants of
+ * the collection. Other changes (e.g. {@code updateMulti}, or moving a document to another tenant) are picked up when
+ * the count expires after {@code timeToLive}, or after {@link #invalidate(String)}.
+ */
+public class DataTablesTenantCounts extends AbstractMongoEventListener<Object> {
+
+    private final long timeToLiveMillis;
+    private final Map<String, Count> counts;
+
+    /**
+     * Incremented on every invalidation, so that a count which ran concurrently to a write is not kept.
+     */
+    private long generation;
+
+    /**
+     * @param timeToLive the time after which a cached count is executed again
+     */
+    public DataTablesTenantCounts(Duration timeToLive) {
+        this(timeToLive, 4096);
+    }
+
+    /**
+     * @param timeToLive the time after which a cached count is executed again
+     * @param maxCounts  the maximum number of cached counts
+     */
+    public DataTablesTenantCounts(Duration timeToLive, int maxCounts) {
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.counts = Collections.synchronizedMap(new LinkedHashMap<String, Count>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Count> eldest) {
+                return size() > maxCounts;
+            }
+        });
+    }
+
+    /**
+     * Invalidates the counts of all tenants of the collection.
+     */
+    public void invalidate(String collection) {
+        synchronized (counts) {
+            generation++;
+            counts.values().removeIf(count -> count.collection.equals(collection));
+        }
+    }
+
+    /**
+     * Invalidates the counts of a tenant of the collection.
+     */
+    public void invalidate(String collection, Object tenant) {
+        String tenantKey = String.valueOf(tenant);
+        synchronized (counts) {
+            generation++;
+            counts.values().removeIf(count -> count.collection.equals(collection) && count.tenant.equals(tenantKey));
+        }
+    }
+
+    /**
+     * @param collection           the counted collection
+     * @param tenantField          the field holding the tenant of the documents
+     * @param tenant               the tenant of the draw
+     * @param preFilteringCriteria the criteria of the count, including the one of the tenant
+     * @param exactCounter         executes the count
+     * @return the cached count, or the result of the exact counter if there is none or if the criteria cannot be
+     * rendered (e.g. unmapped enum values)
+     */
+    long count(String collection, String tenantField, Object tenant, Criteria preFilteringCriteria, Supplier<Long> exactCounter) {
+        String criteriaKey = SharedCounts.criteriaKey(preFilteringCriteria);
+        if (criteriaKey == null) {
+            return exactCounter.get();
+        }
+
+        String tenantKey = String.valueOf(tenant);
+        String key = collection + ":" + tenantKey + ":" + criteriaKey;
+        long countedGeneration;
+        synchronized (counts) {
+            Count count = counts.get(key);
+            if (count != null && count.expiresAt > System.currentTimeMillis()) {
+                return count.value;
+            }
+            countedGeneration = generation;
+        }
+
+        long value = exactCounter.get();
+        synchronized (counts) {
+            if (generation == countedGeneration) {
+                counts.put(key, new Count(collection, tenantField, tenantKey, value, System.currentTimeMillis() + timeToLiveMillis));
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        invalidate(event.getCollectionName(), event.getDocument());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        invalidate(event.getCollectionName(), event.getDocument());
+    }
+
+    /**
+     * Invalidates the counts of the tenant of the document (or delete query), or of all tenants if it has none.
+     */
+    private void invalidate(String collection, Document document) {
+        String tenantField;
+        synchronized (counts) {
+            tenantField = counts.values().stream()
+                    .filter(count -> count.collection.equals(collection))
+                    .map(count -> count.tenantField)
+                    .findFirst().orElse(null);
+        }
+        if (tenantField == null) {
+            return;
+        }
+
+        Object tenant = document != null ? document.get(tenantField) : null;
+        if (tenant == null || tenant instanceof Document) {
+            invalidate(collection);
+        } else {
+            invalidate(collection, tenant);
+        }
+    }
+
+    private static final class Count {
+        private final String collection;
+        private final String tenantField;
+        private final String tenant;
+        private final long value;
+        private final long expiresAt;
+
+        private Count(String collection, String tenantField, String tenant, long value, long expiresAt) {
+            this.collection = collection;
+            this.tenantField = tenantField;
+            this.tenant = tenant;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
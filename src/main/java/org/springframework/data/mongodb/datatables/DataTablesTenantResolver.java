@@ -0,0 +1,28 @@
+package org.springframework.data.mongodb.datatables;
+
+/**
+ * Scopes the draws of a {@link DataTablesRepository} to the tenant of the current request, e.g. the one of the
+ * authenticated user.
+ * <p>
+ * Register an implementation as a bean to restrict the documents of each tenant-scoped domain type to those whose
+ * tenant field is equal to the resolved tenant, like pre-filtering criteria (in addition to the pre-filtering criteria
+ * of the call). The pooled cursors, the prefetched pages and the total counts of {@link DataTablesTenantCounts} are
+ * kept per tenant.
+ * <p>
+ * The tenant is resolved on the thread of the draw. The draws of a {@link DataTablesBatchExecutor} run on the threads
+ * of its executor, so the resolver has to be passed to the batch executor, which resolves the tenant on its calling
+ * thread and hands it over to the draws.
+ */
+public interface DataTablesTenantResolver {
+
+    /**
+     * @param domainType the entity type of the repository
+     * @return the field holding the tenant of the documents, or null if the domain type is not tenant-scoped
+     */
+    String getTenantField(Class<?> domainType);
+
+    /**
+     * @return the tenant of the current draw; a draw on a tenant-scoped domain type fails if there is none
+     */
+    Object resolveTenant();
+}
@@ -0,0 +1,148 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves and caches the fields of an entity class which are annotated with {@link DataTablesDenormalized}.
+ */
+final class DenormalizedFields {
+
+    static final String SNAPSHOT_SUFFIX = "_snapshot";
+
+    private static final Map<Class<?>, Map<String, DenormalizedField>> DENORMALIZED_FIELDS = new ConcurrentHashMap<>();
+
+    private DenormalizedFields() {
+    }
+
+    /**
+     * @return the denormalized fields of the given type (including inherited ones), by field name
+     */
+    static Map<String, DenormalizedField> getDenormalizedFields(
+            MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext, Class<?> type) {
+        return DENORMALIZED_FIELDS.computeIfAbsent(type, t -> {
+            Map<String, DenormalizedField> fields = new LinkedHashMap<>();
+            ReflectionUtils.doWithFields(t, f -> {
+                        DataTablesDenormalized annotation = f.getAnnotation(DataTablesDenormalized.class);
+                        boolean manualReference = annotation.referenceType() != Object.class;
+                        fields.put(f.getName(), new DenormalizedField(f.getName(), getFieldName(mappingContext, t, f.getName()),
+                                manualReference ? annotation.referenceType() : f.getType(), manualReference, annotation.columns()));
+                    },
+                    f -> f.isAnnotationPresent(DataTablesDenormalized.class));
+            return Collections.unmodifiableMap(fields);
+        });
+    }
+
+    /**
+     * @return the document field of the property, i.e. its mapped name (e.g. of its {@code @Field} annotation)
+     */
+    static String getFieldName(MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext,
+                               Class<?> type, String property) {
+        MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(type);
+        MongoPersistentProperty persistentProperty = entity != null ? entity.getPersistentProperty(property) : null;
+        return persistentProperty != null ? persistentProperty.getFieldName() : property;
+    }
+
+    /**
+     * @param query the query of a delete
+     * @return the ids of the deleted documents if the query selects them by id only (as the deletes of the
+     * repositories do), an empty list if it selects all documents, or null otherwise
+     */
+    static Collection<?> getDeletedIds(Document query) {
+        if (query.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (query.size() != 1 || query.get("_id") == null) {
+            return null;
+        }
+
+        Object id = query.get("_id");
+        if (!(id instanceof Document)) {
+            return Collections.singletonList(id);
+        }
+        Document condition = (Document) id;
+        return condition.size() == 1 && condition.get("$in") instanceof Collection ? (Collection<?>) condition.get("$in") : null;
+    }
+
+    static final class DenormalizedField {
+        private final String name;
+        private final String fieldName;
+        private final Class<?> referenceType;
+        private final boolean manualReference;
+        private final Set<String> columns;
+
+        /**
+         * @param name            the property of the owning entity
+         * @param fieldName       the document field of the property
+         * @param manualReference true if the field holds the id of the referenced document instead of a DBRef
+         */
+        DenormalizedField(String name, String fieldName, Class<?> referenceType, boolean manualReference, String[] columns) {
+            this.name = name;
+            this.fieldName = fieldName;
+            this.referenceType = referenceType;
+            this.manualReference = manualReference;
+            this.columns = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(columns)));
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getFieldName() {
+            return fieldName;
+        }
+
+        Class<?> getReferenceType() {
+            return referenceType;
+        }
+
+        boolean isManualReference() {
+            return manualReference;
+        }
+
+        /**
+         * @return the path of the id of the referenced document in the owning document
+         */
+        String getKeyField() {
+            return manualReference ? fieldName : fieldName + ".$id";
+        }
+
+        /**
+         * @return the path of the snapshot in the owning document, i.e. the document field with the suffix
+         * {@value DenormalizedFields#SNAPSHOT_SUFFIX}
+         */
+        String getSnapshotField() {
+            return fieldName + SNAPSHOT_SUFFIX;
+        }
+
+        Set<String> getColumns() {
+            return columns;
+        }
+
+        /**
+         * @return true if all reference columns of the configuration are part of the snapshot
+         */
+        boolean coversSearch(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig) {
+            return searchConfig.getReferenceColumns() != null && columns.containsAll(searchConfig.getReferenceColumns());
+        }
+
+        /**
+         * @return true if the reference order column of the configuration is part of the snapshot
+         */
+        boolean coversOrder(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig) {
+            return columns.contains(searchConfig.getReferenceOrderColumn());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.springframework.data.mongodb.datatables;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the latest draw counter per client session, so that requests which have been overtaken by a newer
+ * draw of the same table can be abandoned instead of being executed to completion.
+ * <p>
+ * The latest draw of a session is kept until the session has been idle for the time to live, also after that draw has
+ * been answered, so that older draws which are still running see that they are superseded. A lower draw which begins
+ * after the latest draw has been answered is taken as the new latest draw, as the client has reset its draw counter
+ * (e.g. on a page reload). The least recently used sessions are dropped beyond the maximum number of sessions.
+ */
+final class DrawSupersession {
+
+    private static final Draw UNTRACKED = new Draw(null, null, 0);
+
+    private final long timeToLiveMillis;
+    private final Map<String, LatestDraw> latestDraws;
+
+    DrawSupersession() {
+        this(10000, Duration.ofMinutes(30));
+    }
+
+    /**
+     * @param maxSessions the maximum number of tracked sessions
+     * @param timeToLive  the time after the last draw of a session after which the session is no longer tracked
+     */
+    DrawSupersession(int maxSessions, Duration timeToLive) {
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.latestDraws = new LinkedHashMap<String, LatestDraw>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LatestDraw> eldest) {
+                return size() > maxSessions || eldest.getValue().expiresAt <= System.currentTimeMillis();
+            }
+        };
+    }
+
+    /**
+     * Registers the draw of the given input.
+     *
+     * @param input      the {@link DataTablesInput} of the current request
+     * @param collection the collection the table is backed by
+     * @return a {@link Draw} which has to be closed once the request has been answered
+     */
+    Draw begin(DataTablesInput input, String collection) {
+        if (input.getSessionId() == null) {
+            return UNTRACKED;
+        }
+
+        String key = collection + ":" + input.getSessionId();
+        long now = System.currentTimeMillis();
+        synchronized (latestDraws) {
+            LatestDraw latestDraw = latestDraws.get(key);
+            if (latestDraw == null || latestDraw.expiresAt <= now || latestDraw.draw < input.getDraw()
+                    || latestDraw.answered && latestDraw.draw > input.getDraw()) {
+                latestDraws.put(key, new LatestDraw(input.getDraw(), now + timeToLiveMillis));
+            } else {
+                latestDraw.expiresAt = now + timeToLiveMillis;
+            }
+        }
+        return new Draw(this, key, input.getDraw());
+    }
+
+    private void answered(String key, int draw) {
+        synchronized (latestDraws) {
+            LatestDraw latestDraw = latestDraws.get(key);
+            if (latestDraw != null && latestDraw.draw == draw) {
+                latestDraw.answered = true;
+            }
+        }
+    }
+
+    private Integer getLatestDraw(String key) {
+        synchronized (latestDraws) {
+            LatestDraw latestDraw = latestDraws.get(key);
+            return latestDraw != null ? latestDraw.draw : null;
+        }
+    }
+
+    private static final class LatestDraw {
+        private final int draw;
+        private long expiresAt;
+        private boolean answered;
+
+        private LatestDraw(int draw, long expiresAt) {
+            this.draw = draw;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    static final class Draw implements AutoCloseable {
+        private final DrawSupersession supersession;
+        private final String key;
+        private final int draw;
+
+        private Draw(DrawSupersession supersession, String key, int draw) {
+            this.supersession = supersession;
+            this.key = key;
+            this.draw = draw;
+        }
+
+        boolean isTracked() {
+            return key != null;
+        }
+
+        /**
+         * @return true if a newer draw has been registered for the same session and collection
+         */
+        boolean isSuperseded() {
+            if (key == null) {
+                return false;
+            }
+
+            Integer latestDraw = supersession.getLatestDraw(key);
+            return latestDraw != null && latestDraw > draw;
+        }
+
+        @Override
+        public void close() {
+            if (key != null) {
+                supersession.answered(key, draw);
+            }
+        }
+    }
+}
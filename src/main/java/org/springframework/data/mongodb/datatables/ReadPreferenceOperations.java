@@ -0,0 +1,114 @@
+package org.springframework.data.mongodb.datatables;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.CountOptions;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Executes the reads of a draw with a given {@link ReadPreference}, which {@link MongoOperations} only supports for the
+ * whole template, and with a given index hint, which it does not support for aggregations. The pipelines are mapped
+ * and the results converted like {@link MongoOperations#aggregate} does for untyped aggregations. Without a read
+ * preference and a hint, the reads are delegated to the {@link MongoOperations}.
+ */
+final class ReadPreferenceOperations {
+
+    private final MongoOperations mongoOperations;
+    private final QueryMapper queryMapper;
+
+    ReadPreferenceOperations(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+        this.queryMapper = new QueryMapper(mongoOperations.getConverter());
+    }
+
+    /**
+     * @param readPreference the read preference, or null for the one of the {@link MongoOperations}
+     * @param hint           the key of the index to use, or null to leave the choice to the query planner
+     * @param criteria       the criteria of the count, or null to count all documents
+     */
+    long count(ReadPreference readPreference, Document hint, Criteria criteria, String collection) {
+        if (criteria == null) {
+            return mongoOperations.execute(collection, c -> withReadPreference(c, readPreference).estimatedDocumentCount());
+        }
+
+        Document filter = queryMapper.getMappedObject(criteria.getCriteriaObject(), Optional.empty());
+        CountOptions options = new CountOptions();
+        if (hint != null) {
+            options.hint(hint);
+        }
+        return mongoOperations.execute(collection, c -> withReadPreference(c, readPreference).countDocuments(filter, options));
+    }
+
+    <S> List<S> aggregate(ReadPreference readPreference, Document hint, Aggregation aggregation, String collection, Class<S> readType) {
+        if (readPreference == null && hint == null) {
+            return mongoOperations.aggregate(aggregation, collection, readType).getMappedResults();
+        }
+
+        List<S> results = new ArrayList<>();
+        try (CloseableIterator<S> iterator = aggregateStream(readPreference, hint, aggregation, collection, readType)) {
+            iterator.forEachRemaining(results::add);
+        }
+        return results;
+    }
+
+    <S> CloseableIterator<S> aggregateStream(ReadPreference readPreference, Document hint, Aggregation aggregation, String collection, Class<S> readType) {
+        if (readPreference == null && hint == null) {
+            return mongoOperations.aggregateStream(aggregation, collection, readType);
+        }
+
+        List<Document> pipeline = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).stream()
+                .map(stage -> queryMapper.getMappedObject(stage, Optional.empty()))
+                .collect(toList());
+        AggregationOptions options = aggregation.getOptions();
+
+        MongoCursor<Document> cursor = mongoOperations.execute(collection, c -> {
+            AggregateIterable<Document> iterable = withReadPreference(c, readPreference)
+                    .aggregate(pipeline, Document.class)
+                    .allowDiskUse(options.isAllowDiskUse());
+            if (hint != null) {
+                iterable.hint(hint);
+            }
+            options.getCollation().map(Collation::toMongoCollation).ifPresent(iterable::collation);
+            if (options.getCursorBatchSize() != null) {
+                iterable.batchSize(options.getCursorBatchSize());
+            }
+            return iterable.iterator();
+        });
+
+        return new CloseableIterator<S>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public S next() {
+                return mongoOperations.getConverter().read(readType, cursor.next());
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    private static MongoCollection<Document> withReadPreference(MongoCollection<Document> collection, ReadPreference readPreference) {
+        return readPreference != null ? collection.withReadPreference(readPreference) : collection;
+    }
+}
@@ -0,0 +1,191 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static java.util.stream.Collectors.toList;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * Resolves a search on a reference column against the (usually small) referenced collection, so that the documents
+ * of the main collection can be filtered by their reference ids instead of resolving every reference with $lookup.
+ * <p>
+ * If a {@link DataTablesReferenceCache} is set, the search is evaluated against the cached documents. The same then
+ * applies to sorting: the cached ids of the referenced documents in the order of the reference order column are used
+ * as rank of the documents of the main collection. Without the cache, sorting resolves the references with $lookup,
+ * as reading (and embedding) all ids of the referenced collection on every draw would cost more than it saves.
+ */
+final class ReferenceKeyResolver {
+
+    private final MongoOperations mongoOperations;
+    private DataTablesReferenceCache referenceCache;
+
+    ReferenceKeyResolver(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    void setReferenceCache(DataTablesReferenceCache referenceCache) {
+        this.referenceCache = referenceCache;
+    }
+
+    /**
+     * @param searchConfig the configuration of the reference column
+     * @param search       the search to apply to the reference columns
+     * @param limit        the maximum number of ids to return
+     * @return the keys (the ids, or the values of the reference foreign field) of the matching referenced documents,
+     * or empty if more than {@code limit} documents match
+     */
+    Optional<List<Object>> resolveKeys(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig,
+                                       DataTablesInput.Search search, int limit) {
+        Optional<List<Document>> cachedDocuments = getCachedDocuments(searchConfig);
+        if (cachedDocuments.isPresent()) {
+            try {
+                return filterKeys(cachedDocuments.get(), searchConfig, search, limit);
+            } catch (PatternSyntaxException e) {
+                // not a valid Java pattern, let MongoDB evaluate it
+            }
+        }
+
+        Criteria[] criteria = DataTablesCriteria.createReferenceCriteria("", searchConfig, search).toArray(new Criteria[0]);
+        if (criteria.length == 0) {
+            return Optional.empty();
+        }
+
+        Query query = new Query(criteria.length == 1 ? criteria[0] : new Criteria().orOperator(criteria)).limit(limit + 1);
+        String keyField = getKeyField(searchConfig);
+        query.fields().include(keyField);
+
+        List<Object> keys = mongoOperations.find(query, Document.class, searchConfig.getReferenceCollection()).stream()
+                .map(document -> getValue(document, keyField))
+                .collect(toList());
+
+        return keys.size() > limit ? Optional.empty() : Optional.of(keys);
+    }
+
+    /**
+     * @param searchConfig the configuration of the reference column
+     * @param collation    the collation of the aggregation, may be null
+     * @param limit        the maximum number of ids to return
+     * @return the keys of all referenced documents ordered by the reference order column, or empty if there are more
+     * than {@code limit} referenced documents (or more than the cache holds) or if there is no
+     * {@link DataTablesReferenceCache}
+     */
+    Optional<List<Object>> resolveOrder(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig,
+                                        Collation collation, int limit) {
+        String orderColumn = searchConfig.getReferenceOrderColumn();
+        String collection = searchConfig.getReferenceCollection();
+        String keyField = getKeyField(searchConfig);
+
+        if (referenceCache == null) {
+            return Optional.empty();
+        }
+
+        // the cached keys do not depend on the limit of the draw, so that they are complete for a larger limit
+        String key = "order:" + orderColumn + ":" + keyField + ":" + (collation != null ? collation.toDocument().toJson() : "");
+        return referenceCache.get(collection, key, () -> findOrderedKeys(collection, orderColumn, keyField, collation, referenceCache.getMaxDocuments()))
+                .filter(k -> k.size() <= limit);
+    }
+
+    /**
+     * @return the keys of the referenced documents ordered by the order column, up to {@code limit + 1} keys
+     */
+    private List<Object> findOrderedKeys(String collection, String orderColumn, String keyField, Collation collation, int limit) {
+        // the _id makes the order (and thus the rank) unique for equal values
+        Query query = new Query().with(Sort.by(orderColumn, "_id")).limit(limit + 1);
+        if (collation != null) {
+            query.collation(collation);
+        }
+        query.fields().include(keyField);
+
+        return mongoOperations.find(query, Document.class, collection).stream()
+                .map(document -> getValue(document, keyField))
+                .collect(toList());
+    }
+
+    /**
+     * @return the field of the referenced documents which the reference column refers to
+     */
+    private static String getKeyField(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig) {
+        return hasText(searchConfig.getReferenceForeignField()) ? searchConfig.getReferenceForeignField() : "_id";
+    }
+
+    private Optional<List<Document>> getCachedDocuments(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig) {
+        if (referenceCache == null) {
+            return Optional.empty();
+        }
+
+        Set<String> fields = new LinkedHashSet<>(searchConfig.getReferenceColumns());
+        fields.add(getKeyField(searchConfig));
+        if (hasText(searchConfig.getReferenceOrderColumn())) {
+            fields.add(searchConfig.getReferenceOrderColumn());
+        }
+
+        return referenceCache.getDocuments(mongoOperations, searchConfig.getReferenceCollection(), fields);
+    }
+
+    /**
+     * Evaluates the criteria of {@link DataTablesCriteria#createReferenceCriteria} in memory.
+     */
+    static Optional<List<Object>> filterKeys(List<Document> documents, DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig,
+                                             DataTablesInput.Search search, int limit) {
+        String searchValue = search.getValue();
+        Predicate<Object> matcher;
+
+        if ("true".equalsIgnoreCase(searchValue) || "false".equalsIgnoreCase(searchValue)) {
+            Boolean boolSearchValue = Boolean.parseBoolean(searchValue);
+            matcher = boolSearchValue::equals;
+        } else {
+            Pattern pattern = search.isRegex() ?
+                    Pattern.compile(searchValue) : Pattern.compile(searchValue.trim(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            matcher = value -> value instanceof String && pattern.matcher((String) value).find();
+        }
+
+        List<Object> keys = new ArrayList<>();
+        for (Document document : documents) {
+            boolean matches = searchConfig.getReferenceColumns().stream()
+                    .anyMatch(column -> matches(getValue(document, column), matcher));
+
+            if (matches) {
+                keys.add(getValue(document, getKeyField(searchConfig)));
+                if (keys.size() > limit) {
+                    return Optional.empty();
+                }
+            }
+        }
+
+        return Optional.of(keys);
+    }
+
+    private static boolean matches(Object value, Predicate<Object> matcher) {
+        // like MongoDB, an array matches if one of its elements matches
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().anyMatch(matcher);
+        }
+        return matcher.test(value);
+    }
+
+    static Object getValue(Document document, String path) {
+        Object value = document;
+        for (String key : path.split("\\.")) {
+            if (!(value instanceof Document)) {
+                return null;
+            }
+            value = ((Document) value).get(key);
+        }
+        return value;
+    }
+}
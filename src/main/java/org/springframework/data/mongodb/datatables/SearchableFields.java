@@ -0,0 +1,84 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves and caches the fields of an entity class which are annotated with {@link DataTablesSearchable}.
+ */
+final class SearchableFields {
+
+    static final String NORMALIZED_SUFFIX = "_normalized";
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern REGEX_META_CHARACTERS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private static final Map<Class<?>, Map<String, DataTablesSearchable>> SEARCHABLE_FIELDS = new ConcurrentHashMap<>();
+
+    private SearchableFields() {
+    }
+
+    /**
+     * @return the fields of the given type (including inherited ones) with their {@link DataTablesSearchable}
+     * annotation, by field name
+     */
+    static Map<String, DataTablesSearchable> getSearchableFields(Class<?> type) {
+        return SEARCHABLE_FIELDS.computeIfAbsent(type, t -> {
+            Map<String, DataTablesSearchable> fields = new LinkedHashMap<>();
+            ReflectionUtils.doWithFields(t, f -> fields.put(f.getName(), f.getAnnotation(DataTablesSearchable.class)),
+                    f -> f.isAnnotationPresent(DataTablesSearchable.class));
+            return Collections.unmodifiableMap(fields);
+        });
+    }
+
+    static boolean isNormalized(Class<?> type, String field) {
+        DataTablesSearchable searchable = getSearchableFields(type).get(field);
+        return searchable != null && searchable.normalized();
+    }
+
+    /**
+     * @return the document field of the normalized copy of the property, i.e. the mapped name of the property (e.g.
+     * of its {@code @Field} annotation) with the suffix {@value #NORMALIZED_SUFFIX}
+     */
+    static String normalizedField(MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext,
+                                  Class<?> type, String property) {
+        MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(type);
+        MongoPersistentProperty persistentProperty = entity != null ? entity.getPersistentProperty(property) : null;
+        return (persistentProperty != null ? persistentProperty.getFieldName() : property) + NORMALIZED_SUFFIX;
+    }
+
+    /**
+     * @return the lowercase value without diacritics, e.g. "creme brulee" for "Crème Brûlée"
+     */
+    static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the given value with all regular expression meta characters escaped
+     */
+    static String escape(String value) {
+        return REGEX_META_CHARACTERS.matcher(value).replaceAll("\\\\$0");
+    }
+
+    static Object readField(Object entity, String fieldName) {
+        Field field = ReflectionUtils.findField(entity.getClass(), fieldName);
+        if (field == null) {
+            return null;
+        }
+        ReflectionUtils.makeAccessible(field);
+        return ReflectionUtils.getField(field, entity);
+    }
+}
@@ -0,0 +1,96 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Shares the total counts between the requests of a batch (see {@link DataTablesBatchExecutor}): requests on the same
+ * collection with the same pre-filtering criteria count the documents once, even if they run concurrently.
+ * <p>
+ * Outside of a batch, every count is executed.
+ */
+final class SharedCounts {
+
+    private static final ThreadLocal<SharedCounts> CURRENT = new ThreadLocal<>();
+
+    private final ConcurrentMap<String, FutureTask<Long>> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the task with this scope, so that its counts are shared with the other tasks run with this scope.
+     */
+    <V> V run(Supplier<V> task) {
+        SharedCounts previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * @param collection           the counted collection
+     * @param preFilteringCriteria the criteria of the count, may be null
+     * @param counter              executes the count
+     * @return the count of the current scope, or the result of the counter if there is no current scope
+     */
+    static long count(String collection, Criteria preFilteringCriteria, Supplier<Long> counter) {
+        SharedCounts scope = CURRENT.get();
+        if (scope == null) {
+            return counter.get();
+        }
+
+        String criteriaKey = criteriaKey(preFilteringCriteria);
+        if (criteriaKey == null) {
+            return counter.get();
+        }
+
+        String key = collection + ":" + criteriaKey;
+        FutureTask<Long> count = new FutureTask<>(counter::get);
+        FutureTask<Long> existingCount = scope.counts.putIfAbsent(key, count);
+        if (existingCount != null) {
+            count = existingCount;
+        } else {
+            count.run();
+        }
+
+        try {
+            return count.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the count of " + collection, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @param criteria the criteria to identify, may be null
+     * @return identifies the criteria, or null if they contain values which cannot be rendered without the mapping
+     * context (like enums), so that counts with these criteria are not shared
+     */
+    static String criteriaKey(Criteria criteria) {
+        if (criteria == null) {
+            return "";
+        }
+
+        try {
+            return criteria.getCriteriaObject().toJson();
+        } catch (CodecConfigurationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Before;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
+/**
+ * The orders, products and users of the repository tests, and the input of a table showing all columns of the orders.
+ * The subclasses choose the optional features of the context they run against.
+ */
+public abstract class AbstractOrderRepositoryTest {
+
+    @Autowired
+    protected ProductRepository productRepository;
+
+    @Autowired
+    protected OrderRepository orderRepository;
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected MongoOperations mongoOperations;
+
+    protected Order order1;
+    protected Order order2;
+    protected Order order3;
+    protected Order order4;
+
+    @Before
+    public void init() {
+        productRepository.deleteAll();
+        orderRepository.deleteAll();
+
+        productRepository.save(Product.PRODUCT1);
+        productRepository.save(Product.PRODUCT2);
+        productRepository.save(Product.PRODUCT3);
+        productRepository.save(Product.PRODUCT4);
+
+        userRepository.save(User.USER1);
+
+        order1 = Order.ORDER1(Product.PRODUCT1);
+        order2 = Order.ORDER2(Product.PRODUCT2);
+        order3 = Order.ORDER3(Product.PRODUCT3);
+        order4 = Order.ORDER4(Product.PRODUCT4, User.USER1);
+
+        orderRepository.save(order1);
+        orderRepository.save(order2);
+        orderRepository.save(order3);
+        orderRepository.save(order4);
+    }
+
+    protected DataTablesInput getDefaultInput() {
+        DataTablesInput input = new DataTablesInput();
+
+        List<String> productRefColumns = new ArrayList<>();
+        productRefColumns.add("label");
+        productRefColumns.add("isEnabled");
+        productRefColumns.add("createdAt");
+
+        List<String> userRefColumns = new ArrayList<>();
+        userRefColumns.add("firstName");
+        userRefColumns.add("lastName");
+
+        input.setColumns(new ArrayList<>(asList(
+                createColumn("id", true, true),
+                createColumn("label", true, true),
+                createColumn("isEnabled", true, true),
+                createColumn("createdAt", true, true),
+                createColumn("characteristics.key", true, true),
+                createColumn("characteristics.value", true, true),
+                createColumn("product", true, true),
+                createColumn("user", true, true),
+                createColumn("lastModified", true, true),
+                createColumn("lastProcessed", true, true)
+        )));
+        input.setSearch(new DataTablesInput.Search("", false));
+
+        DataTablesInput.SearchConfiguration searchConfiguration = new DataTablesInput.SearchConfiguration();
+        input.setSearchConfiguration(searchConfiguration);
+
+        searchConfiguration.setSearchType("id", DataTablesInput.SearchType.Integer);
+        searchConfiguration.setSearchType("isEnabled", DataTablesInput.SearchType.Boolean);
+        searchConfiguration.setSearchType("lastModified", DataTablesInput.SearchType.Date);
+        searchConfiguration.setSearchType("lastProcessed", DataTablesInput.SearchType.Date);
+
+        searchConfiguration.addRefConfiguration("product", "product", productRefColumns, "createdAt");
+        searchConfiguration.addRefConfiguration("user", "user", userRefColumns, "firstName");
+        return input;
+    }
+
+    protected DataTablesInput.Column createColumn(String columnName, boolean orderable, boolean searchable) {
+        DataTablesInput.Column column = new DataTablesInput.Column();
+        column.setData(columnName);
+        column.setOrderable(orderable);
+        column.setSearchable(searchable);
+        column.setSearch(new DataTablesInput.Search("", true));
+        return column;
+    }
+}
@@ -0,0 +1,50 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.springframework.data.mongodb.core.query.Collation;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompiledSearchConfigurationTest {
+
+    private static DataTablesInput input(String labelSearch, String globalSearch) {
+        DataTablesInput input = new DataTablesInput();
+        DataTablesInput.Column id = new DataTablesInput.Column();
+        id.setData("id");
+        id.setSearchable(true);
+        id.setSearch(new DataTablesInput.Search("", false));
+        DataTablesInput.Column label = new DataTablesInput.Column();
+        label.setData("label");
+        label.setSearchable(true);
+        label.setSearch(new DataTablesInput.Search(labelSearch, false));
+        input.setColumns(asList(id, label));
+        input.setSearch(new DataTablesInput.Search(globalSearch, false));
+        return input;
+    }
+
+    private static CompiledSearchConfiguration compile(Collation collation) {
+        DataTablesInput.SearchConfiguration searchConfiguration = new DataTablesInput.SearchConfiguration();
+        searchConfiguration.setSearchType("label", DataTablesInput.SearchType.EqualsIgnoreCase);
+        searchConfiguration.setCollation(collation);
+        return CompiledSearchConfiguration.of(searchConfiguration, Order.class);
+    }
+
+    @Test
+    public void caseInsensitiveCollationOnlyWhenSearched() {
+        CompiledSearchConfiguration configuration = compile(null);
+
+        assertThat(configuration.getCollation(input("", ""))).isNull();
+        assertThat(configuration.getCollation(input("order3", ""))).isNotNull();
+        assertThat(configuration.getCollation(input("", "order3"))).isNotNull();
+    }
+
+    @Test
+    public void configuredCollation() {
+        Collation collation = Collation.of("fr");
+        CompiledSearchConfiguration configuration = compile(collation);
+
+        assertThat(configuration.getCollation(input("", ""))).isSameAs(collation);
+        assertThat(configuration.getCollation(input("order3", ""))).isSameAs(collation);
+    }
+}
@@ -0,0 +1,241 @@
+package org.springframework.data.mongodb.datatables;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.messaging.SubscriptionRequest;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.util.ErrorHandler;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class DataTablesCounterServiceTest {
+
+    private FakeContainer container;
+    private DataTablesCounterService counterService;
+    private AtomicInteger exactCounts;
+    private AtomicInteger clusterTime;
+
+    @Before
+    public void init() {
+        container = new FakeContainer();
+        clusterTime = new AtomicInteger(100);
+        counterService = new DataTablesCounterService(container, 256, () -> new BsonTimestamp(clusterTime.get(), 0));
+        exactCounts = new AtomicInteger();
+    }
+
+    private long count(Criteria preFilteringCriteria, long exactCount) {
+        return counterService.count("order", preFilteringCriteria, () -> {
+            exactCounts.incrementAndGet();
+            return exactCount;
+        });
+    }
+
+    @Test
+    public void unfiltered() {
+        assertThat(count(null, 4)).isEqualTo(4);
+        assertThat(count(null, 4)).isEqualTo(4);
+        assertThat(exactCounts).hasValue(1);
+
+        container.publish(change(OperationType.INSERT, new Document("label", "order5"), null));
+        container.publish(change(OperationType.INSERT, new Document("label", "order6"), null));
+        container.publish(change(OperationType.DELETE, null, null));
+        container.publish(change(OperationType.UPDATE, null, new UpdateDescription(emptyList(), new BsonDocument("quantity", new BsonInt32(3)))));
+        assertThat(count(null, 0)).isEqualTo(5);
+        assertThat(exactCounts).hasValue(1);
+    }
+
+    @Test
+    public void equalityFilter() {
+        assertThat(count(where("isEnabled").is(true), 2)).isEqualTo(2);
+
+        container.publish(change(OperationType.INSERT, new Document("isEnabled", true), null));
+        container.publish(change(OperationType.INSERT, new Document("isEnabled", false), null));
+        container.publish(change(OperationType.UPDATE, null, new UpdateDescription(emptyList(), new BsonDocument("quantity", new BsonInt32(3)))));
+        assertThat(count(where("isEnabled").is(true), 0)).isEqualTo(3);
+        assertThat(exactCounts).hasValue(1);
+
+        // the update may change whether the document matches
+        container.publish(change(OperationType.UPDATE, null, new UpdateDescription(emptyList(), new BsonDocument("isEnabled", new BsonInt32(0)))));
+        assertThat(count(where("isEnabled").is(true), 2)).isEqualTo(2);
+        assertThat(exactCounts).hasValue(2);
+
+        // the deleted document is unknown
+        container.publish(change(OperationType.DELETE, null, null));
+        assertThat(count(where("isEnabled").is(true), 1)).isEqualTo(1);
+        assertThat(exactCounts).hasValue(3);
+    }
+
+    @Test
+    public void otherFilter() {
+        assertThat(count(where("quantity").gt(1), 2)).isEqualTo(2);
+
+        container.publish(change(OperationType.INSERT, new Document("quantity", 3), null));
+        assertThat(count(where("quantity").gt(1), 3)).isEqualTo(3);
+        assertThat(exactCounts).hasValue(2);
+    }
+
+    @Test
+    public void streamFailure() {
+        assertThat(count(null, 4)).isEqualTo(4);
+
+        container.fail(new IllegalStateException("resume point may no longer be in the oplog"));
+        assertThat(container.subscription.isActive()).isFalse();
+        assertThat(count(null, 5)).isEqualTo(5);
+        assertThat(count(null, 5)).isEqualTo(5);
+        assertThat(exactCounts).hasValue(3);
+    }
+
+    @Test
+    public void inactiveStream() {
+        container.active = false;
+        assertThat(count(null, 4)).isEqualTo(4);
+        assertThat(count(null, 4)).isEqualTo(4);
+        assertThat(exactCounts).hasValue(2);
+    }
+
+    @Test
+    public void changeDeliveredAfterCount() {
+        assertThat(count(null, 4)).isEqualTo(4);
+
+        // committed after the count
+        container.publish(change(OperationType.INSERT, new Document("label", "order5"), null, 101));
+        assertThat(count(null, 0)).isEqualTo(5);
+        assertThat(exactCounts).hasValue(1);
+
+        // may have been committed before the count completed
+        container.publish(change(OperationType.INSERT, new Document("label", "order6"), null, 100));
+        assertThat(count(null, 6)).isEqualTo(6);
+        assertThat(exactCounts).hasValue(2);
+    }
+
+    @Test
+    public void unmappedCriteria() {
+        assertThat(count(where("status").is(Thread.State.NEW), 2)).isEqualTo(2);
+        assertThat(count(where("status").is(Thread.State.NEW), 3)).isEqualTo(3);
+        assertThat(exactCounts).hasValue(2);
+    }
+
+    private ChangeStreamDocument<Document> change(OperationType operationType, Document fullDocument, UpdateDescription updateDescription) {
+        return change(operationType, fullDocument, updateDescription, clusterTime.incrementAndGet());
+    }
+
+    private static ChangeStreamDocument<Document> change(OperationType operationType, Document fullDocument, UpdateDescription updateDescription,
+                                                         int clusterTime) {
+        return new ChangeStreamDocument<>(new BsonDocument(), new BsonDocument(), fullDocument, new BsonDocument(),
+                new BsonTimestamp(clusterTime, 0), operationType, updateDescription);
+    }
+
+    private static final class FakeContainer implements MessageListenerContainer {
+        private boolean active = true;
+        private ChangeStreamRequest<Document> request;
+        private ErrorHandler errorHandler;
+        private FakeSubscription subscription;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <S, T> Subscription register(SubscriptionRequest<S, ? super T, ? extends SubscriptionRequest.RequestOptions> request,
+                                            Class<T> bodyType, ErrorHandler errorHandler) {
+            this.request = (ChangeStreamRequest<Document>) request;
+            this.errorHandler = errorHandler;
+            this.subscription = new FakeSubscription(active);
+            return subscription;
+        }
+
+        @Override
+        public <S, T> Subscription register(SubscriptionRequest<S, ? super T, ? extends SubscriptionRequest.RequestOptions> request,
+                                            Class<T> bodyType) {
+            return register(request, bodyType, error -> {
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        void publish(ChangeStreamDocument<Document> change) {
+            MessageListener<ChangeStreamDocument<Document>, Document> listener = (MessageListener<ChangeStreamDocument<Document>, Document>) request.getMessageListener();
+            listener.onMessage(new Message<ChangeStreamDocument<Document>, Document>() {
+                @Override
+                public ChangeStreamDocument<Document> getRaw() {
+                    return change;
+                }
+
+                @Override
+                public Document getBody() {
+                    return change.getFullDocument();
+                }
+
+                @Override
+                public MessageProperties getProperties() {
+                    return MessageProperties.empty();
+                }
+            });
+        }
+
+        void fail(Throwable error) {
+            subscription.active = false;
+            errorHandler.handleError(error);
+        }
+
+        @Override
+        public void remove(Subscription subscription) {
+            ((FakeSubscription) subscription).active = false;
+        }
+
+        @Override
+        public Optional<Subscription> lookup(SubscriptionRequest<?, ?, ?> request) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public boolean isRunning() {
+            return true;
+        }
+    }
+
+    private static final class FakeSubscription implements Subscription {
+        private boolean active;
+
+        private FakeSubscription(boolean active) {
+            this.active = active;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public boolean await(Duration timeout) {
+            return active;
+        }
+
+        @Override
+        public void cancel() {
+            active = false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataTablesCriteriaTest {
+
+    private static final ObjectId ID1 = new ObjectId("5c8a1d5b0190b214360dc031");
+    private static final ObjectId ID2 = new ObjectId("5c8a1d5b0190b214360dc032");
+    private static final UUID UUID1 = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+    private static final UUID UUID2 = UUID.fromString("123e4567-e89b-12d3-a456-426614174001");
+
+    static class Entity {
+        @Id
+        private ObjectId id;
+        private UUID uuid;
+        private List<ObjectId> productIds;
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public List<ObjectId> getProductIds() {
+            return productIds;
+        }
+    }
+
+    private static DataTablesInput input(String idSearch, String uuidSearch) {
+        DataTablesInput input = new DataTablesInput();
+        input.setColumns(asList(column("id", idSearch), column("uuid", uuidSearch)));
+        input.setSearch(new DataTablesInput.Search("", false));
+
+        DataTablesInput.SearchConfiguration searchConfiguration = new DataTablesInput.SearchConfiguration();
+        searchConfiguration.setSearchType("id", DataTablesInput.SearchType.ObjectId);
+        searchConfiguration.setSearchType("uuid", DataTablesInput.SearchType.UUID);
+        input.setSearchConfiguration(searchConfiguration);
+        return input;
+    }
+
+    private static DataTablesInput.Column column(String data, String search) {
+        DataTablesInput.Column column = new DataTablesInput.Column();
+        column.setData(data);
+        column.setSearchable(true);
+        column.setOrderable(true);
+        column.setSearch(new DataTablesInput.Search(search, false));
+        return column;
+    }
+
+    private static DataTablesCriteria<Entity> criteria(DataTablesInput input) {
+        return new DataTablesCriteria<>(input, CompiledSearchConfiguration.of(input.getSearchConfiguration(), Entity.class),
+                null, null, Entity.class, null, Collections.emptyMap(), new MongoMappingContext());
+    }
+
+    /**
+     * @return the leading $match stage of the filtered count, or null if there is none
+     */
+    private static Document match(DataTablesInput input) {
+        List<Document> pipeline = criteria(input).toFilteredCountAggregation().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        return pipeline.get(0).containsKey("$match") ? pipeline.get(0).get("$match", Document.class) : null;
+    }
+
+    @Test
+    public void objectId() {
+        assertThat(match(input(ID1.toHexString(), ""))).isEqualTo(new Document("_id", ID1));
+    }
+
+    @Test
+    public void objectIdList() {
+        Document expected = new Document("_id", new Document("$in", asList(ID1, ID2)));
+        assertThat(match(input(ID1.toHexString() + "|" + ID2.toHexString(), ""))).isEqualTo(expected);
+        assertThat(match(input(ID1.toHexString() + ", " + ID2.toHexString(), ""))).isEqualTo(expected);
+
+        // the malformed values of a list are ignored
+        assertThat(match(input(ID1.toHexString() + "|abc", ""))).isEqualTo(new Document("_id", ID1));
+    }
+
+    @Test
+    public void malformedObjectId() {
+        assertThat(match(input("abc", ""))).isNull();
+    }
+
+    @Test
+    public void uuid() {
+        assertThat(match(input("", " " + UUID1 + " "))).isEqualTo(new Document("uuid", UUID1));
+    }
+
+    @Test
+    public void uuidList() {
+        Document expected = new Document("uuid", new Document("$in", asList(UUID1, UUID2)));
+        assertThat(match(input("", UUID1 + "|" + UUID2))).isEqualTo(expected);
+        assertThat(match(input("", UUID1 + "," + UUID2))).isEqualTo(expected);
+    }
+
+    @Test
+    public void malformedUuid() {
+        assertThat(match(input("", "not-a-uuid"))).isNull();
+    }
+
+    @Test
+    public void excludedColumnsWithManualReferenceLookup() {
+        DataTablesInput input = input("", "");
+        input.setColumns(asList(column("id", ""), column("productIds", "product1")));
+        input.getSearchConfiguration().addManualRefConfiguration("productIds", "product", "_id",
+                Collections.singletonList("label"), "label");
+        input.getSearchConfiguration().getExcludedColumns().add("uuid");
+
+        List<Document> pipeline = criteria(input).toAggregation().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertThat(pipeline).anyMatch(stage -> stage.containsKey("$lookup"));
+        Document projection = pipeline.get(pipeline.size() - 1).get("$project", Document.class);
+        assertThat(projection).containsKey("productIds").doesNotContainKey("uuid");
+    }
+
+    @Test
+    public void cursorWindow() {
+        DataTablesInput input = input("", "");
+        input.setStart(20);
+        input.setLength(10);
+        input.setOrder(Collections.singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc)));
+
+        List<Document> pipeline = criteria(input).toCursorAggregation(null, 30).toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertThat(pipeline).extracting(stage -> stage.keySet().iterator().next()).containsExactly("$sort", "$skip", "$limit");
+        assertThat(pipeline.get(2)).isEqualTo(new Document("$limit", 30L));
+    }
+}
@@ -0,0 +1,120 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DataTablesInputArgumentResolverTest {
+
+    private final DataTablesInputArgumentResolver resolver = new DataTablesInputArgumentResolver();
+    private final Map<String, String[]> parameters = new HashMap<>();
+
+    @Test
+    public void resolve() throws Exception {
+        parameters.put("start", new String[]{"20"});
+
+        DataTablesInput input = (DataTablesInput) resolve("list", new ModelAndViewContainer());
+        assertThat(input.getStart()).isEqualTo(20);
+    }
+
+    @Test
+    public void invalidValue() {
+        parameters.put("start", new String[]{"first"});
+
+        // rejected with 400 Bad Request instead of an internal server error
+        assertThatThrownBy(() -> resolve("list", new ModelAndViewContainer()))
+                .isInstanceOf(ServerWebInputException.class)
+                .hasMessageContaining("Invalid value 'first' of parameter 'start'");
+    }
+
+    @Test
+    public void validation() {
+        parameters.put("length", new String[]{"-2"});
+
+        assertThatThrownBy(() -> resolve("validated", new ModelAndViewContainer()))
+                .isInstanceOf(MethodArgumentNotValidException.class);
+    }
+
+    @Test
+    public void validation_errorsParameter() throws Exception {
+        parameters.put("length", new String[]{"-2"});
+        ModelAndViewContainer mavContainer = new ModelAndViewContainer();
+
+        resolve("validatedWithErrors", mavContainer);
+        assertThat(mavContainer.getModel().get(BindingResult.MODEL_KEY_PREFIX + "dataTablesInput"))
+                .isInstanceOfSatisfying(BindingResult.class, errors -> assertThat(errors.hasFieldErrors("length")).isTrue());
+    }
+
+    @Test
+    public void withoutValidation() throws Exception {
+        parameters.put("length", new String[]{"-2"});
+
+        DataTablesInput input = (DataTablesInput) resolve("list", new ModelAndViewContainer());
+        assertThat(input.getLength()).isEqualTo(-2);
+    }
+
+    private Object resolve(String methodName, ModelAndViewContainer mavContainer) throws Exception {
+        MethodParameter parameter = null;
+        for (Method method : Controller.class.getDeclaredMethods()) {
+            if (method.getName().equals(methodName)) {
+                parameter = new MethodParameter(method, 0);
+            }
+        }
+        assertThat(resolver.supportsParameter(parameter)).isTrue();
+
+        NativeWebRequest webRequest = (NativeWebRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{NativeWebRequest.class}, (proxy, method, args) -> "getParameterMap".equals(method.getName()) ? parameters : null);
+        WebDataBinderFactory binderFactory = (request, target, name) -> {
+            WebDataBinder binder = new WebDataBinder(target, name);
+            binder.setValidator(new LengthValidator());
+            return binder;
+        };
+        return resolver.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+    }
+
+    @SuppressWarnings("unused")
+    private static class Controller {
+        void list(DataTablesInput input) {
+        }
+
+        void validated(@Validated DataTablesInput input) {
+        }
+
+        void validatedWithErrors(@Validated DataTablesInput input, Errors errors) {
+        }
+    }
+
+    /**
+     * Checks the @Min(-1) of the length, like a bean validator.
+     */
+    private static class LengthValidator implements Validator {
+        @Override
+        public boolean supports(Class<?> clazz) {
+            return DataTablesInput.class.equals(clazz);
+        }
+
+        @Override
+        public void validate(Object target, Errors errors) {
+            if (((DataTablesInput) target).getLength() < -1) {
+                errors.rejectValue("length", "Min");
+            }
+        }
+    }
+}
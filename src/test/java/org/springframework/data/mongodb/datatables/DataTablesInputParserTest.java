@@ -0,0 +1,129 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DataTablesInputParserTest {
+
+    @Test
+    public void parameterMap() {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("draw", new String[]{"3"});
+        parameters.put("start", new String[]{"20"});
+        parameters.put("length", new String[]{"-1"});
+        parameters.put("search[value]", new String[]{"order"});
+        parameters.put("search[regex]", new String[]{"false"});
+        parameters.put("columns[0][data]", new String[]{"id"});
+        parameters.put("columns[0][searchable]", new String[]{"true"});
+        parameters.put("columns[0][orderable]", new String[]{"true"});
+        parameters.put("columns[0][search][value]", new String[]{""});
+        parameters.put("columns[1][data]", new String[]{"label"});
+        parameters.put("columns[1][name]", new String[]{"Label"});
+        parameters.put("columns[1][searchable]", new String[]{"true"});
+        parameters.put("columns[1][orderable]", new String[]{"false"});
+        parameters.put("columns[1][search][value]", new String[]{"^order[12]$"});
+        parameters.put("columns[1][search][regex]", new String[]{"true"});
+        parameters.put("order[0][column]", new String[]{"1"});
+        parameters.put("order[0][dir]", new String[]{"desc"});
+        parameters.put("_", new String[]{"1571234567890"});
+
+        DataTablesInput input = DataTablesInputParser.parse(parameters);
+
+        assertThat(input.getDraw()).isEqualTo(3);
+        assertThat(input.getStart()).isEqualTo(20);
+        assertThat(input.getLength()).isEqualTo(-1);
+        assertThat(input.getSearch()).isEqualTo(new DataTablesInput.Search("order", false));
+        assertThat(input.getColumns()).hasSize(2);
+        assertThat(input.getColumns().get(0).getData()).isEqualTo("id");
+        assertThat(input.getColumns().get(0).isSearchable()).isTrue();
+        assertThat(input.getColumns().get(0).getSearch()).isEqualTo(new DataTablesInput.Search("", false));
+        assertThat(input.getColumn("label")).hasValueSatisfying(column -> {
+            assertThat(column.getName()).isEqualTo("Label");
+            assertThat(column.isOrderable()).isFalse();
+            assertThat(column.getSearch()).isEqualTo(new DataTablesInput.Search("^order[12]$", true));
+        });
+        assertThat(input.getOrder()).containsExactly(new DataTablesInput.Order(1, DataTablesInput.Order.Direction.desc));
+    }
+
+    @Test
+    public void queryString() {
+        DataTablesInput input = DataTablesInputParser.parse("draw=1&columns%5B0%5D%5Bdata%5D=label"
+                + "&columns%5B0%5D%5Bsearch%5D%5Bvalue%5D=a+b%26c&order%5B0%5D%5Bcolumn%5D=0&order%5B0%5D%5Bdir%5D=asc");
+
+        assertThat(input.getColumns()).hasSize(1);
+        assertThat(input.getColumns().get(0).getData()).isEqualTo("label");
+        assertThat(input.getColumns().get(0).getSearch().getValue()).isEqualTo("a b&c");
+        assertThat(input.getOrder()).containsExactly(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc));
+    }
+
+    @Test
+    public void springFriendlyParameters() {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("search.value", new String[]{"order"});
+        parameters.put("columns[2].data", new String[]{"label"});
+        parameters.put("columns[2].search.value", new String[]{"order1"});
+        parameters.put("order[0].column", new String[]{"2"});
+        parameters.put("order[0].dir", new String[]{"desc"});
+
+        DataTablesInput input = DataTablesInputParser.parse(parameters);
+
+        assertThat(input.getSearch().getValue()).isEqualTo("order");
+        assertThat(input.getColumns()).hasSize(1);
+        assertThat(input.getColumn("label").map(column -> column.getSearch().getValue())).hasValue("order1");
+        assertThat(input.getOrder()).containsExactly(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.desc));
+    }
+
+    @Test
+    public void missingIndexes() {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("columns[0][data]", new String[]{"id"});
+        parameters.put("columns[2][data]", new String[]{"label"});
+        parameters.put("columns[5][data]", new String[]{"createdAt"});
+        parameters.put("order[0][column]", new String[]{"5"});
+        parameters.put("order[1][column]", new String[]{"3"});
+        parameters.put("order[3][column]", new String[]{"2"});
+        parameters.put("order[3][dir]", new String[]{"desc"});
+
+        DataTablesInput input = DataTablesInputParser.parse(parameters);
+
+        // the orders still refer to the same columns, the one on the missing column is dropped
+        assertThat(input.getColumns()).extracting(DataTablesInput.Column::getData).containsExactly("id", "label", "createdAt");
+        assertThat(input.getOrder()).containsExactly(
+                new DataTablesInput.Order(2, DataTablesInput.Order.Direction.asc),
+                new DataTablesInput.Order(1, DataTablesInput.Order.Direction.desc));
+    }
+
+    @Test
+    public void largeIndexes() {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("columns[2147483600][data]", new String[]{"label"});
+        parameters.put("order[2147483600][column]", new String[]{"2147483600"});
+
+        DataTablesInput input = DataTablesInputParser.parse(parameters);
+
+        assertThat(input.getColumns()).extracting(DataTablesInput.Column::getData).containsExactly("label");
+        assertThat(input.getOrder()).containsExactly(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc));
+    }
+
+    @Test
+    public void invalidValue() {
+        Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("start", new String[]{"first"});
+
+        assertThatThrownBy(() -> DataTablesInputParser.parse(parameters))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid value 'first' of parameter 'start'");
+
+        parameters.clear();
+        parameters.put("order[0][dir]", new String[]{"up"});
+
+        assertThatThrownBy(() -> DataTablesInputParser.parse(parameters))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid value 'up' of parameter 'order[0][dir]'");
+    }
+}
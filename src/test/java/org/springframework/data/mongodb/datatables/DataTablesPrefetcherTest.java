@@ -0,0 +1,61 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataTablesPrefetcherTest {
+
+    @Test
+    public void takeOnce() {
+        DataTablesPrefetcher prefetcher = new DataTablesPrefetcher(Runnable::run, 1, 10, Duration.ofMinutes(1));
+        prefetcher.prefetch("orders:10", () -> new DataTablesPrefetcher.Page<>(asList("order11", "order12"), 12));
+
+        DataTablesPrefetcher.Page<String> page = prefetcher.take("orders:10");
+        assertThat(page.getData()).containsExactly("order11", "order12");
+        assertThat(page.getRecordsFiltered()).isEqualTo(12);
+        assertThat(prefetcher.<String>take("orders:10")).isNull();
+    }
+
+    @Test
+    public void concurrencyLimit() {
+        List<Runnable> tasks = new ArrayList<>();
+        Executor executor = tasks::add;
+        DataTablesPrefetcher prefetcher = new DataTablesPrefetcher(executor, 1, 10, Duration.ofMinutes(1));
+
+        prefetcher.prefetch("orders:10", () -> new DataTablesPrefetcher.Page<>(asList("order11"), 20));
+        prefetcher.prefetch("orders:20", () -> new DataTablesPrefetcher.Page<>(asList("order21"), 20));
+        assertThat(tasks).hasSize(1);
+
+        tasks.get(0).run();
+        prefetcher.prefetch("orders:20", () -> new DataTablesPrefetcher.Page<>(asList("order21"), 20));
+        assertThat(tasks).hasSize(2);
+    }
+
+    @Test
+    public void failedPrefetch() {
+        DataTablesPrefetcher prefetcher = new DataTablesPrefetcher(Runnable::run, 1, 10, Duration.ofMinutes(1));
+        prefetcher.prefetch("orders:10", () -> {
+            throw new IllegalStateException("cursor killed");
+        });
+
+        assertThat(prefetcher.<String>take("orders:10")).isNull();
+        // the permit has been released
+        prefetcher.prefetch("orders:10", () -> new DataTablesPrefetcher.Page<>(asList("order11"), 20));
+        assertThat(prefetcher.<String>take("orders:10").getData()).containsExactly("order11");
+    }
+
+    @Test
+    public void expired() {
+        DataTablesPrefetcher prefetcher = new DataTablesPrefetcher(Runnable::run, 1, 10, Duration.ofMillis(-1));
+        prefetcher.prefetch("orders:10", () -> new DataTablesPrefetcher.Page<>(asList("order11"), 20));
+
+        assertThat(prefetcher.<String>take("orders:10")).isNull();
+    }
+}
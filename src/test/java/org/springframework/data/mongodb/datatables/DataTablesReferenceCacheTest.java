@@ -0,0 +1,84 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataTablesReferenceCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void cached() {
+        DataTablesReferenceCache cache = new DataTablesReferenceCache(3, Duration.ofMinutes(1));
+
+        assertThat(cache.get("product", "key", () -> load(1, 2))).contains(asList(1, 2));
+        assertThat(cache.get("product", "key", () -> load(3, 4))).contains(asList(1, 2));
+        assertThat(cache.get("product", "other", () -> load(3, 4))).contains(asList(3, 4));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void expired() throws InterruptedException {
+        DataTablesReferenceCache cache = new DataTablesReferenceCache(3, Duration.ofMillis(1));
+
+        assertThat(cache.get("product", "key", () -> load(1, 2))).contains(asList(1, 2));
+        Thread.sleep(10);
+        assertThat(cache.get("product", "key", () -> load(3, 4))).contains(asList(3, 4));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void tooManyDocuments() {
+        DataTablesReferenceCache cache = new DataTablesReferenceCache(3, Duration.ofMinutes(1));
+
+        // the loader reads up to maxDocuments + 1 documents, and the overflow is cached as well
+        assertThat(cache.get("product", "key", () -> load(1, 2, 3, 4))).isEmpty();
+        assertThat(cache.get("product", "key", () -> load(1, 2, 3, 4))).isEmpty();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void invalidate() {
+        DataTablesReferenceCache cache = new DataTablesReferenceCache(3, Duration.ofMinutes(1));
+        cache.get("product", "key", () -> load(1, 2));
+        cache.get("user", "key", () -> load(1, 2));
+
+        cache.invalidate("product");
+        assertThat(cache.get("product", "key", () -> load(3, 4))).contains(asList(3, 4));
+        assertThat(cache.get("user", "key", () -> load(3, 4))).contains(asList(1, 2));
+
+        cache.invalidateAll();
+        assertThat(cache.get("user", "key", () -> load(5, 6))).contains(asList(5, 6));
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    public void invalidateWhileLoading() {
+        DataTablesReferenceCache cache = new DataTablesReferenceCache(3, Duration.ofMinutes(1));
+
+        // the collection changes while it is read, so the loaded value may be outdated and is not kept
+        assertThat(cache.get("product", "key", () -> {
+            cache.invalidate("product");
+            return load(1, 2);
+        })).contains(asList(1, 2));
+        assertThat(cache.get("product", "key", () -> load(3, 4))).contains(asList(3, 4));
+
+        assertThat(cache.get("user", "key", () -> {
+            cache.invalidateAll();
+            return load(1, 2);
+        })).contains(asList(1, 2));
+        assertThat(cache.get("user", "key", () -> load(3, 4))).contains(asList(3, 4));
+        assertThat(loads).hasValue(4);
+    }
+
+    private List<Integer> load(Integer... values) {
+        loads.incrementAndGet();
+        return asList(values);
+    }
+}
@@ -0,0 +1,88 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class DataTablesTenantCountsTest {
+
+    private enum Status {
+        OPEN
+    }
+
+    private DataTablesTenantCounts tenantCounts;
+    private AtomicInteger exactCounts;
+
+    @Before
+    public void init() {
+        tenantCounts = new DataTablesTenantCounts(Duration.ofMinutes(1));
+        exactCounts = new AtomicInteger();
+    }
+
+    private long count(Object tenant, long exactCount) {
+        return tenantCounts.count("order", "tenantId", tenant, where("tenantId").is(tenant), () -> {
+            exactCounts.incrementAndGet();
+            return exactCount;
+        });
+    }
+
+    @Test
+    public void cached() {
+        assertThat(count(1, 4)).isEqualTo(4);
+        assertThat(count(1, 5)).isEqualTo(4);
+        assertThat(count(2, 7)).isEqualTo(7);
+        assertThat(exactCounts).hasValue(2);
+    }
+
+    @Test
+    public void saveInvalidatesTenant() {
+        count(1, 4);
+        count(2, 7);
+
+        tenantCounts.onAfterSave(new AfterSaveEvent<>(new Object(), new Document("_id", 5).append("tenantId", 1), "order"));
+        assertThat(count(1, 5)).isEqualTo(5);
+        assertThat(count(2, 8)).isEqualTo(7);
+        assertThat(exactCounts).hasValue(3);
+
+        // other collections do not affect the counts
+        tenantCounts.onAfterSave(new AfterSaveEvent<>(new Object(), new Document("_id", 5).append("tenantId", 2), "product"));
+        assertThat(count(2, 8)).isEqualTo(7);
+        assertThat(exactCounts).hasValue(3);
+    }
+
+    @Test
+    public void deleteWithoutTenantInvalidatesCollection() {
+        count(1, 4);
+        count(2, 7);
+
+        tenantCounts.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", 5), Object.class, "order"));
+        assertThat(count(1, 3)).isEqualTo(3);
+        assertThat(count(2, 6)).isEqualTo(6);
+        assertThat(exactCounts).hasValue(4);
+    }
+
+    @Test
+    public void unmappedCriteria() {
+        // enum values cannot be rendered before the criteria are mapped, so the count is not cached
+        Criteria criteria = where("tenantId").is(1).and("status").is(Status.OPEN);
+        assertThat(tenantCounts.count("order", "tenantId", 1, criteria, () -> (long) exactCounts.incrementAndGet())).isEqualTo(1);
+        assertThat(tenantCounts.count("order", "tenantId", 1, criteria, () -> (long) exactCounts.incrementAndGet())).isEqualTo(2);
+    }
+
+    @Test
+    public void expired() {
+        tenantCounts = new DataTablesTenantCounts(Duration.ZERO);
+        count(1, 4);
+        assertThat(count(1, 5)).isEqualTo(5);
+        assertThat(exactCounts).hasValue(2);
+    }
+}
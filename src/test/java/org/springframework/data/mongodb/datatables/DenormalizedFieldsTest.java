@@ -0,0 +1,41 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DenormalizedFieldsTest {
+
+    @Test
+    public void denormalizedFields() {
+        Map<String, DenormalizedFields.DenormalizedField> fields = DenormalizedFields.getDenormalizedFields(new MongoMappingContext(), Invoice.class);
+
+        assertThat(fields.keySet()).containsExactly("customer", "seller");
+
+        DenormalizedFields.DenormalizedField customer = fields.get("customer");
+        assertThat(customer.getSnapshotField()).isEqualTo("buyer_snapshot");
+        assertThat(customer.getKeyField()).isEqualTo("buyer.$id");
+        assertThat(customer.getReferenceType()).isEqualTo(User.class);
+
+        DenormalizedFields.DenormalizedField seller = fields.get("seller");
+        assertThat(seller.getSnapshotField()).isEqualTo("seller_id_snapshot");
+        assertThat(seller.getKeyField()).isEqualTo("seller_id");
+        assertThat(seller.isManualReference()).isTrue();
+    }
+
+    private static class Invoice {
+        @DBRef
+        @Field("buyer")
+        @DataTablesDenormalized(columns = {"firstName", "lastName"})
+        private User customer;
+
+        @Field("seller_id")
+        @DataTablesDenormalized(columns = "lastName", referenceType = User.class)
+        private Long seller;
+    }
+}
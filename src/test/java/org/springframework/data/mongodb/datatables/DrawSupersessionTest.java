@@ -0,0 +1,98 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DrawSupersessionTest {
+
+    private static DataTablesInput input(String sessionId, int draw) {
+        DataTablesInput input = new DataTablesInput();
+        input.setSessionId(sessionId);
+        input.setDraw(draw);
+        return input;
+    }
+
+    @Test
+    public void supersededByNewerDraw() {
+        DrawSupersession supersession = new DrawSupersession();
+        DrawSupersession.Draw older = supersession.begin(input("session1", 1), "order");
+        assertThat(older.isSuperseded()).isFalse();
+
+        DrawSupersession.Draw newer = supersession.begin(input("session1", 2), "order");
+        assertThat(older.isSuperseded()).isTrue();
+        assertThat(newer.isSuperseded()).isFalse();
+
+        // an older draw which starts late, while the newer one is running, does not supersede it
+        DrawSupersession.Draw late = supersession.begin(input("session1", 1), "order");
+        assertThat(late.isSuperseded()).isTrue();
+        assertThat(newer.isSuperseded()).isFalse();
+    }
+
+    @Test
+    public void supersededAfterNewerDrawAnswered() {
+        DrawSupersession supersession = new DrawSupersession();
+        DrawSupersession.Draw older = supersession.begin(input("session1", 1), "order");
+
+        // the newer draw is answered while the older one is still running
+        supersession.begin(input("session1", 2), "order").close();
+        assertThat(older.isSuperseded()).isTrue();
+        older.close();
+        assertThat(older.isSuperseded()).isTrue();
+    }
+
+    @Test
+    public void resetDrawCounter() {
+        DrawSupersession supersession = new DrawSupersession();
+        supersession.begin(input("session1", 7), "order").close();
+
+        // the page has been reloaded
+        DrawSupersession.Draw draw = supersession.begin(input("session1", 1), "order");
+        assertThat(draw.isSuperseded()).isFalse();
+        assertThat(supersession.begin(input("session1", 2), "order").isSuperseded()).isFalse();
+        assertThat(draw.isSuperseded()).isTrue();
+    }
+
+    @Test
+    public void otherSessionsAndCollections() {
+        DrawSupersession supersession = new DrawSupersession();
+        DrawSupersession.Draw draw = supersession.begin(input("session1", 1), "order");
+
+        supersession.begin(input("session2", 2), "order");
+        supersession.begin(input("session1", 2), "product");
+        assertThat(draw.isSuperseded()).isFalse();
+    }
+
+    @Test
+    public void untracked() {
+        DrawSupersession supersession = new DrawSupersession();
+        DrawSupersession.Draw draw = supersession.begin(input(null, 1), "order");
+        supersession.begin(input(null, 2), "order");
+
+        assertThat(draw.isTracked()).isFalse();
+        assertThat(draw.isSuperseded()).isFalse();
+    }
+
+    @Test
+    public void expiredSession() {
+        DrawSupersession supersession = new DrawSupersession(10, Duration.ZERO);
+        supersession.begin(input("session1", 5), "order");
+
+        // the client has reset its draw counter after the session expired
+        DrawSupersession.Draw draw = supersession.begin(input("session1", 1), "order");
+        assertThat(draw.isSuperseded()).isFalse();
+    }
+
+    @Test
+    public void maxSessions() {
+        DrawSupersession supersession = new DrawSupersession(1, Duration.ofMinutes(1));
+        supersession.begin(input("session1", 5), "order");
+        supersession.begin(input("session2", 1), "order");
+
+        // the first session has been dropped
+        DrawSupersession.Draw draw = supersession.begin(input("session1", 1), "order");
+        assertThat(draw.isSuperseded()).isFalse();
+    }
+}
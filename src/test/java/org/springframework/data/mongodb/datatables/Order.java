@@ -10,6 +10,8 @@ import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 @Document
@@ -25,6 +27,7 @@ public class Order {
                 .createdAt(truncateToMillis(LocalDateTime.now()))
                 .lastModified(Instant.parse("1971-01-01T04:00:00.00Z"))
                 .product(product)
+                .productIds(Collections.singletonList(1L))
                 .characteristic(new Product.Characteristic("key1", "val11"))
                 .characteristic(new Product.Characteristic("key2", "val21"))
                 .build();
@@ -50,6 +53,7 @@ public class Order {
                 .isEnabled(false)
                 .createdAt(truncateToMillis(LocalDateTime.now().minusHours(1)))
                 .product(product)
+                .productIds(Arrays.asList(1L, 3L))
                 .characteristic(new Product.Characteristic("key2", "val23"))
                 .build();
     }
@@ -82,6 +86,7 @@ public class Order {
 
     private boolean isEnabled;
 
+    @DataTablesSearchable(normalized = true, indexed = true)
     private String label;
 
     private LocalDateTime createdAt;
@@ -92,7 +97,13 @@ public class Order {
     @DBRef
     private Product product;
 
+    /**
+     * Manual references to products, by their id.
+     */
+    private List<Long> productIds;
+
     @DBRef
+    @DataTablesDenormalized(columns = {"firstName", "lastName"})
     private User user;
 
     private Instant lastModified;
@@ -0,0 +1,11 @@
+package org.springframework.data.mongodb.datatables;
+
+/**
+ * A closed interface projection of {@link Order}.
+ */
+public interface OrderLabel {
+
+    long getId();
+
+    String getLabel();
+}
@@ -0,0 +1,62 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the draws whose results are converted in batches on a {@link DataTablesConversionExecutor}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositoryConversionExecutorTest.Config.class})
+public class OrderRepositoryConversionExecutorTest extends AbstractOrderRepositoryTest {
+
+    @Configuration
+    static class Config {
+
+        @Bean(destroyMethod = "shutdown")
+        public ExecutorService conversionPool() {
+            return Executors.newFixedThreadPool(2);
+        }
+
+        @Bean
+        public DataTablesConversionExecutor dataTablesConversionExecutor(ExecutorService conversionPool) {
+            // small batches, so that the pages of the tests are converted in parallel
+            return new DataTablesConversionExecutor(conversionPool, 2);
+        }
+    }
+
+    @Test
+    public void converter_preservesOrder() {
+        DataTablesInput input = getDefaultInput();
+        input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.desc)));
+
+        DataTablesOutput<Long> output = orderRepository.findAll(input, Order::getId);
+        assertThat(output.getData()).containsExactly(4L, 3L, 2L, 1L);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void converter_failure() {
+        DataTablesInput input = getDefaultInput();
+        input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc)));
+
+        // the failure of a batch converted on the executor fails the draw
+        DataTablesOutput<Long> output = orderRepository.findAll(input, order -> {
+            if (order.getId() == 1) {
+                throw new IllegalStateException("conversion failed");
+            }
+            return order.getId();
+        });
+        assertThat(output.getError()).contains("conversion failed");
+    }
+}
@@ -0,0 +1,60 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.time.Duration;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the draws of a session which read sequential pages from a cursor of the {@link DataTablesCursorPool}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositoryCursorPoolTest.Config.class})
+public class OrderRepositoryCursorPoolTest extends AbstractOrderRepositoryTest {
+
+    @Configuration
+    static class Config {
+
+        @Bean(destroyMethod = "closeAll")
+        public DataTablesCursorPool dataTablesCursorPool() {
+            // a window of two pages, so that paging through the orders reopens the cursor
+            return new DataTablesCursorPool(16, Duration.ofSeconds(30), 2, 2);
+        }
+    }
+
+    @Test
+    public void cursorReuse() {
+        DataTablesInput input = getDefaultInput();
+        input.setSessionId("session2");
+        input.setLength(1);
+        input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc)));
+
+        for (Order order : asList(order1, order2, order3, order4)) {
+            DataTablesOutput<Order> output = orderRepository.findAll(input);
+            assertThat(output.getError()).isNull();
+            assertThat(output.getRecordsFiltered()).isEqualTo(4);
+            assertThat(output.getData()).containsOnly(order);
+            input.setStart(input.getStart() + 1);
+        }
+
+        // previous page, served from the buffer of the cursor
+        input.setStart(2);
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order3);
+
+        // a different query opens a new cursor
+        input.setStart(0);
+        input.getColumn("label").ifPresent(column -> column.setSearch(new DataTablesInput.Search("order2", false)));
+        output = orderRepository.findAll(input);
+        assertThat(output.getRecordsFiltered()).isEqualTo(1);
+        assertThat(output.getData()).containsOnly(order2);
+    }
+}
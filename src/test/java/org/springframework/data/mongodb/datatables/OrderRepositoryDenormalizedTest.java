@@ -0,0 +1,65 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Tests the searches on the snapshots maintained by the {@link DataTablesDenormalizationListener}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositoryDenormalizedTest.Config.class})
+public class OrderRepositoryDenormalizedTest extends AbstractOrderRepositoryTest {
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public DataTablesDenormalizationListener dataTablesDenormalizationListener(MongoOperations mongoOperations) {
+            return new DataTablesDenormalizationListener(mongoOperations);
+        }
+    }
+
+    @Test
+    public void ref_denormalizedSnapshot() {
+        DataTablesInput input = getDefaultInput();
+        input.setSearch(new DataTablesInput.Search("FName", false));
+        input.setOrder(singletonList(new DataTablesInput.Order(7, DataTablesInput.Order.Direction.asc)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order4);
+        assertThat(output.getError()).isNull();
+
+        // saving the referenced user updates the snapshots of the orders referencing it
+        userRepository.save(User.builder().id(1).firstName("Changed").lastName("LName").build());
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).isEmpty();
+        assertThat(output.getError()).isNull();
+
+        input.setSearch(new DataTablesInput.Search("changed", false));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).hasSize(1);
+        assertThat(output.getData().get(0).getUser().getFirstName()).isEqualTo("Changed");
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void ref_denormalizedSnapshot_delete() {
+        assertThat(mongoOperations.count(query(where("user_snapshot").exists(true)), Order.class)).isEqualTo(1);
+
+        // deleting the referenced user removes the snapshots of the orders referencing it
+        userRepository.delete(User.USER1);
+        assertThat(mongoOperations.count(query(where("user_snapshot").exists(true)), Order.class)).isEqualTo(0);
+    }
+}
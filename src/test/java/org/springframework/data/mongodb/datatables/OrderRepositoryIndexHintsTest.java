@@ -0,0 +1,74 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Tests the draws which are hinted to use a partial index registered with {@link DataTablesIndexHints}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositoryIndexHintsTest.Config.class})
+public class OrderRepositoryIndexHintsTest extends AbstractOrderRepositoryTest {
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public DataTablesIndexHints dataTablesIndexHints(MongoOperations mongoOperations) {
+            // the index is only created by the tests
+            return new DataTablesIndexHints(mongoOperations).register(Order.class, "label_enabled");
+        }
+    }
+
+    @Autowired
+    private DataTablesIndexHints indexHints;
+
+    @Test
+    public void indexHint() {
+        mongoOperations.indexOps(Order.class).ensureIndex(new Index().on("label", Sort.Direction.ASC).named("label_enabled")
+                .partial(PartialIndexFilter.of(where("isEnabled").is(true))));
+        try {
+            DataTablesInput input = getDefaultInput();
+            input.getColumn("label").ifPresent(column ->
+                    column.setSearch(new DataTablesInput.Search("order[12]", true)));
+
+            // the prefilter satisfies the partial filter expression, so the partial index is hinted
+            String collection = mongoOperations.getCollectionName(Order.class);
+            assertThat(indexHints.getHint(Order.class, collection, where("isEnabled").is(true))).isEqualTo(new Document("label", 1));
+            DataTablesOutput<Order> output = orderRepository.findAll(input, where("id").gt(0), where("isEnabled").is(true));
+            assertThat(output.getError()).isNull();
+            assertThat(output.getRecordsTotal()).isEqualTo(2);
+            assertThat(output.getRecordsFiltered()).isEqualTo(2);
+            assertThat(output.getData()).containsOnly(order1, order2);
+
+            // hinting the partial index to this prefilter would miss the disabled orders
+            assertThat(indexHints.getHint(Order.class, collection, where("isEnabled").is(false))).isNull();
+            output = orderRepository.findAll(input, null, where("isEnabled").is(false));
+            assertThat(output.getError()).isNull();
+            assertThat(output.getRecordsTotal()).isEqualTo(2);
+            assertThat(output.getData()).isEmpty();
+
+            // an index without partial filter expression is left to the query planner
+            mongoOperations.indexOps(Order.class).dropIndex("label_enabled");
+            mongoOperations.indexOps(Order.class).ensureIndex(new Index().on("label", Sort.Direction.ASC).named("label_enabled"));
+            indexHints.refresh();
+            assertThat(indexHints.getHint(Order.class, collection, where("isEnabled").is(true))).isNull();
+        } finally {
+            mongoOperations.indexOps(Order.class).dropIndex("label_enabled");
+            indexHints.refresh();
+        }
+    }
+}
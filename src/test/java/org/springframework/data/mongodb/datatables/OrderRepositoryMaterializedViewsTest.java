@@ -0,0 +1,97 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Tests the draws which read from a view of {@link DataTablesMaterializedViews}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositoryMaterializedViewsTest.Config.class})
+public class OrderRepositoryMaterializedViewsTest extends AbstractOrderRepositoryTest {
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public DataTablesMaterializedViews dataTablesMaterializedViews(MongoOperations mongoOperations) {
+            // updated right away, so that the tests see the changes of their writes
+            DataTablesMaterializedViews views = new DataTablesMaterializedViews(mongoOperations, Runnable::run);
+            // only built by the tests
+            views.register(Order.class, "order_view").join("product", "label", "isEnabled", "createdAt");
+            return views;
+        }
+    }
+
+    @Autowired
+    private DataTablesMaterializedViews materializedViews;
+
+    @Test
+    public void materializedView() {
+        materializedViews.refresh(Order.class);
+        try {
+            assertThat(mongoOperations.count(new Query(), "order_view")).isEqualTo(4);
+
+            // the snapshot of the view is searched instead of the product collection
+            mongoOperations.updateFirst(query(where("_id").is(1L)), new Update().set("product_snapshot.label", "viewed"), "order_view");
+
+            DataTablesInput input = getDefaultInput();
+            input.getColumn("product").ifPresent(column ->
+                    column.setSearch(new DataTablesInput.Search("viewed", false)));
+
+            DataTablesOutput<Order> output = orderRepository.findAll(input);
+            assertThat(output.getError()).isNull();
+            assertThat(output.getData()).containsOnly(order1);
+
+            // saving the product updates the orders referencing it
+            productRepository.save(Product.PRODUCT1);
+            output = orderRepository.findAll(input);
+            assertThat(output.getData()).isEmpty();
+
+            input.getColumn("product").ifPresent(column ->
+                    column.setSearch(new DataTablesInput.Search("product1", false)));
+            output = orderRepository.findAll(input);
+            assertThat(output.getData()).containsOnly(order1);
+
+            orderRepository.delete(order1);
+            assertThat(mongoOperations.count(new Query(), "order_view")).isEqualTo(3);
+        } finally {
+            materializedViews.drop(Order.class);
+        }
+    }
+
+    @Test
+    public void materializedView_failedUpdate() {
+        materializedViews.refresh(Order.class);
+        try {
+            mongoOperations.indexOps("order_view").ensureIndex(new Index().on("label", Sort.Direction.ASC).unique().named("label_unique"));
+
+            // the update of the view fails on the duplicate label, the entity collection is written anyway
+            Order order5 = Order.ORDER1(Product.PRODUCT1);
+            order5.setId(5);
+            orderRepository.save(order5);
+            assertThat(mongoOperations.count(new Query(), "order_view")).isEqualTo(4);
+
+            // so the view is rebuilt with the next update
+            mongoOperations.indexOps("order_view").dropIndex("label_unique");
+            orderRepository.save(order2);
+            assertThat(mongoOperations.count(new Query(), "order_view")).isEqualTo(5);
+        } finally {
+            materializedViews.drop(Order.class);
+        }
+    }
+}
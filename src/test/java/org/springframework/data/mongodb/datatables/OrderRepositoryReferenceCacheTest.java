@@ -0,0 +1,81 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.time.Duration;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the searches and sorts on reference columns whose collection is kept by a {@link DataTablesReferenceCache}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositoryReferenceCacheTest.Config.class})
+public class OrderRepositoryReferenceCacheTest extends AbstractOrderRepositoryTest {
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public DataTablesReferenceCache dataTablesReferenceCache() {
+            return new DataTablesReferenceCache(100, Duration.ofMinutes(10));
+        }
+    }
+
+    @Autowired
+    private DataTablesReferenceCache referenceCache;
+
+    @Before
+    public void invalidateCache() {
+        // the collections are written by each test, without a change stream
+        referenceCache.invalidateAll();
+    }
+
+    @Test
+    public void ref_columnFilter() {
+        DataTablesInput input = getDefaultInput();
+        input.getColumn("product").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("product4", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order4);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void ref_sort_rank() {
+        DataTablesInput input = getDefaultInput();
+        input.setOrder(singletonList(new DataTablesInput.Order(6, DataTablesInput.Order.Direction.desc)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsSequence(order4, order2, order1, order3);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void ref_sort_referenceKeyLimit() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setReferenceKeyLimit(2);
+        input.setOrder(singletonList(new DataTablesInput.Order(6, DataTablesInput.Order.Direction.desc)));
+
+        // more products than the limit, so the references are resolved with $lookup
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsSequence(order4, order2, order1, order3);
+        assertThat(output.getError()).isNull();
+
+        // the ranks cached by the previous draw cover all products, not only the ones within its limit
+        input.getSearchConfiguration().setReferenceKeyLimit(10);
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsSequence(order4, order2, order1, order3);
+        assertThat(output.getError()).isNull();
+    }
+}
@@ -0,0 +1,58 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the draws which refer to a search configuration registered with {@link DataTablesSearchConfigurations}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositorySearchConfigurationsTest.Config.class})
+public class OrderRepositorySearchConfigurationsTest extends AbstractOrderRepositoryTest {
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public DataTablesSearchConfigurations dataTablesSearchConfigurations() {
+            DataTablesInput.SearchConfiguration orders = new DataTablesInput.SearchConfiguration();
+            orders.setSearchType("id", DataTablesInput.SearchType.Integer);
+            orders.setSearchType("isEnabled", DataTablesInput.SearchType.Boolean);
+            orders.addRefConfiguration("product", "product", Arrays.asList("label", "isEnabled", "createdAt"), "createdAt");
+
+            return new DataTablesSearchConfigurations().register(Order.class, "orders", orders);
+        }
+    }
+
+    @Test
+    public void registeredSearchConfiguration() {
+        DataTablesInput input = getDefaultInput();
+        input.setSearchConfiguration(null);
+        input.setSearchConfigurationName("orders");
+        input.setSearch(new DataTablesInput.Search("product2", false));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order2);
+        assertThat(output.getError()).isNull();
+
+        input.setSearch(new DataTablesInput.Search("", false));
+        input.getColumn("id").ifPresent(column -> column.setSearch(new DataTablesInput.Search(">2", false)));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order3, order4);
+        assertThat(output.getError()).isNull();
+
+        input.setSearchConfigurationName("unknown");
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getError()).contains("unknown");
+    }
+}
@@ -0,0 +1,71 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the searches on the normalized copies maintained by the {@link DataTablesSearchableEventListener}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositorySearchableTest.Config.class})
+public class OrderRepositorySearchableTest extends AbstractOrderRepositoryTest {
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public DataTablesSearchableEventListener dataTablesSearchableEventListener(MongoOperations mongoOperations) {
+            return new DataTablesSearchableEventListener(mongoOperations);
+        }
+    }
+
+    @Autowired
+    private DataTablesSearchableEventListener searchableEventListener;
+
+    @Test
+    public void normalizedColumnFilter() {
+        Order order5 = Order.builder()
+                .id(5)
+                .label("Crème Brûlée")
+                .product(Product.PRODUCT1)
+                .build();
+        orderRepository.save(order5);
+
+        DataTablesInput input = getDefaultInput();
+        input.getColumn("label").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search(" CREME brul ", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order5);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void normalizedColumnFilter_backfill() {
+        // saved before the field was annotated, so without a normalized copy
+        mongoOperations.insert(new Document("_id", 5L).append("label", "Crème Brûlée"), "order");
+
+        DataTablesInput input = getDefaultInput();
+        input.getColumn("label").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("creme", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).isEmpty();
+        assertThat(output.getError()).isNull();
+
+        assertThat(searchableEventListener.backfill(Order.class)).isEqualTo(1);
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).extracting(Order::getId).containsOnly(5L);
+        assertThat(output.getError()).isNull();
+    }
+}
@@ -0,0 +1,134 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Tests the draws scoped to the tenant of a {@link DataTablesTenantResolver}, with the total counts cached by
+ * {@link DataTablesTenantCounts}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestConfiguration.class, OrderRepositoryTenantTest.Config.class})
+public class OrderRepositoryTenantTest extends AbstractOrderRepositoryTest {
+
+    /**
+     * The tenant of the orders, which use isEnabled as tenant field.
+     */
+    private static final ThreadLocal<Boolean> ORDER_TENANT = new ThreadLocal<>();
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        public DataTablesTenantResolver dataTablesTenantResolver() {
+            return new DataTablesTenantResolver() {
+                @Override
+                public String getTenantField(Class<?> domainType) {
+                    return domainType == Order.class ? "isEnabled" : null;
+                }
+
+                @Override
+                public Object resolveTenant() {
+                    return ORDER_TENANT.get();
+                }
+            };
+        }
+
+        @Bean
+        public DataTablesTenantCounts dataTablesTenantCounts() {
+            return new DataTablesTenantCounts(Duration.ofMinutes(1));
+        }
+    }
+
+    @Autowired
+    private DataTablesTenantResolver tenantResolver;
+
+    @Test
+    public void tenant() {
+        ORDER_TENANT.set(true);
+        try {
+            DataTablesInput input = getDefaultInput();
+            input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc)));
+
+            DataTablesOutput<Order> output = orderRepository.findAll(input);
+            assertThat(output.getError()).isNull();
+            assertThat(output.getRecordsTotal()).isEqualTo(2);
+            assertThat(output.getData()).containsExactly(order1, order2);
+
+            // the tenant criteria are combined with the pre-filtering criteria
+            output = orderRepository.findAll(input, null, where("label").is("order2"));
+            assertThat(output.getError()).isNull();
+            assertThat(output.getRecordsTotal()).isEqualTo(1);
+            assertThat(output.getData()).containsExactly(order2);
+
+            // saving an order of the tenant invalidates its counts
+            Order order5 = Order.ORDER1(Product.PRODUCT1);
+            order5.setId(5);
+            order5.setLabel("order5");
+            orderRepository.save(order5);
+
+            output = orderRepository.findAll(input);
+            assertThat(output.getError()).isNull();
+            assertThat(output.getRecordsTotal()).isEqualTo(3);
+
+            ORDER_TENANT.set(false);
+            output = orderRepository.findAll(input);
+            assertThat(output.getError()).isNull();
+            assertThat(output.getRecordsTotal()).isEqualTo(2);
+            assertThat(output.getData()).containsExactly(order3, order4);
+
+            orderRepository.deleteById(5L);
+            ORDER_TENANT.set(true);
+            output = orderRepository.findAll(input);
+            assertThat(output.getError()).isNull();
+            assertThat(output.getRecordsTotal()).isEqualTo(2);
+        } finally {
+            ORDER_TENANT.remove();
+        }
+    }
+
+    @Test
+    public void batch() {
+        DataTablesInput input = getDefaultInput();
+        input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc)));
+        DataTablesInput searchInput = getDefaultInput();
+        searchInput.setSearch(new DataTablesInput.Search("order", false));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ORDER_TENANT.set(false);
+        try {
+            // the tenant of the calling thread is handed over to the threads of the executor
+            List<DataTablesOutput<?>> outputs = new DataTablesBatchExecutor(executor, tenantResolver).execute(asList(
+                    DataTablesBatchExecutor.request(orderRepository, input),
+                    DataTablesBatchExecutor.request(orderRepository, searchInput)));
+            assertThat(outputs.get(0).getError()).isNull();
+            assertThat(outputs.get(0).getRecordsTotal()).isEqualTo(2);
+            assertThat(outputs.get(0).getData()).containsExactly(order3, order4);
+            assertThat(outputs.get(1).getError()).isNull();
+            assertThat(outputs.get(1).getData()).containsOnly(order3, order4);
+
+            // without the resolver, the draws do not resolve the tenant on the threads of the executor
+            outputs = new DataTablesBatchExecutor(executor).execute(singletonList(
+                    DataTablesBatchExecutor.request(orderRepository, input)));
+            assertThat(outputs.get(0).getError()).contains("No tenant resolved");
+        } finally {
+            ORDER_TENANT.remove();
+            executor.shutdown();
+        }
+    }
+}
@@ -1,112 +1,30 @@
 package org.springframework.data.mongodb.datatables;
 
-import org.junit.Before;
+import com.mongodb.ReadPreference;
+import org.bson.Document;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 /**
  * Includes the same tests as ProductRepositoryTest and more. Tests the functionality against the aggregation pipeline.
  */
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = TestConfiguration.class)
-public class OrderRepositoryTest {
-
-    @Autowired
-    private ProductRepository productRepository;
-
-    @Autowired
-    private OrderRepository orderRepository;
-
-    @Autowired
-    private UserRepository userRepository;
-
-    private Order order1;
-    private Order order2;
-    private Order order3;
-    private Order order4;
-
-    @Before
-    public void init() {
-        productRepository.deleteAll();
-        orderRepository.deleteAll();
-
-        productRepository.save(Product.PRODUCT1);
-        productRepository.save(Product.PRODUCT2);
-        productRepository.save(Product.PRODUCT3);
-        productRepository.save(Product.PRODUCT4);
-
-        userRepository.save(User.USER1);
-
-        order1 = Order.ORDER1(Product.PRODUCT1);
-        order2 = Order.ORDER2(Product.PRODUCT2);
-        order3 = Order.ORDER3(Product.PRODUCT3);
-        order4 = Order.ORDER4(Product.PRODUCT4, User.USER1);
-
-        orderRepository.save(order1);
-        orderRepository.save(order2);
-        orderRepository.save(order3);
-        orderRepository.save(order4);
-    }
-
-    private DataTablesInput getDefaultInput() {
-        DataTablesInput input = new DataTablesInput();
-
-        List<String> productRefColumns = new ArrayList<>();
-        productRefColumns.add("label");
-        productRefColumns.add("isEnabled");
-        productRefColumns.add("createdAt");
-
-        List<String> userRefColumns = new ArrayList<>();
-        userRefColumns.add("firstName");
-        userRefColumns.add("lastName");
-
-        input.setColumns(new ArrayList<>(asList(
-                createColumn("id", true, true),
-                createColumn("label", true, true),
-                createColumn("isEnabled", true, true),
-                createColumn("createdAt", true, true),
-                createColumn("characteristics.key", true, true),
-                createColumn("characteristics.value", true, true),
-                createColumn("product", true, true),
-                createColumn("user", true, true),
-                createColumn("lastModified", true, true),
-                createColumn("lastProcessed", true, true)
-        )));
-        input.setSearch(new DataTablesInput.Search("", false));
-
-        DataTablesInput.SearchConfiguration searchConfiguration = new DataTablesInput.SearchConfiguration();
-        input.setSearchConfiguration(searchConfiguration);
-
-        searchConfiguration.setSearchType("id", DataTablesInput.SearchType.Integer);
-        searchConfiguration.setSearchType("isEnabled", DataTablesInput.SearchType.Boolean);
-        searchConfiguration.setSearchType("lastModified", DataTablesInput.SearchType.Date);
-        searchConfiguration.setSearchType("lastProcessed", DataTablesInput.SearchType.Date);
-
-        searchConfiguration.addRefConfiguration("product", "product", productRefColumns, "createdAt");
-        searchConfiguration.addRefConfiguration("user", "user", userRefColumns, "firstName");
-        return input;
-    }
-
-    private DataTablesInput.Column createColumn(String columnName, boolean orderable, boolean searchable) {
-        DataTablesInput.Column column = new DataTablesInput.Column();
-        column.setData(columnName);
-        column.setOrderable(orderable);
-        column.setSearchable(searchable);
-        column.setSearch(new DataTablesInput.Search("", true));
-        return column;
-    }
+public class OrderRepositoryTest extends AbstractOrderRepositoryTest {
 
     @Test
     public void referenceSearchable() {
@@ -748,4 +666,345 @@ public class OrderRepositoryTest {
 
         assertThat(output.getError()).isNull();
     }
+
+    @Test
+    public void sessionId() {
+        DataTablesInput input = getDefaultInput();
+        input.setSessionId("session1");
+        input.setDraw(2);
+        input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getDraw()).isEqualTo(2);
+        assertThat(output.isSuperseded()).isFalse();
+        assertThat(output.getRecordsFiltered()).isEqualTo(4);
+        assertThat(output.getData()).containsSequence(order1, order2, order3, order4);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void normalizedColumnFilter_withoutListener() {
+        // without the listener, there is no normalized copy, and the field itself is searched
+        mongoOperations.insert(new Document("_id", 5L).append("label", "Crème Brûlée"), "order");
+
+        DataTablesInput input = getDefaultInput();
+        input.getColumn("label").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("CRème", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).extracting(Order::getId).containsOnly(5L);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void columnFilterEqualsIgnoreCase() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setSearchType("label", DataTablesInput.SearchType.EqualsIgnoreCase);
+        input.getColumn("label").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search(" ORDer3  ", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order3);
+        assertThat(output.getError()).isNull();
+
+        input.getColumn("label").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("order", false)));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).isEmpty();
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void columnFilterEqualsIgnoreCase_collationOfDraw() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setSearchType("label", DataTablesInput.SearchType.EqualsIgnoreCase);
+
+        // without a search on the column, the pre-filtering criteria keep the simple collation
+        DataTablesOutput<Order> output = orderRepository.findAll(input, null, where("label").is("ORDER3"));
+        assertThat(output.getRecordsTotal()).isEqualTo(0);
+        assertThat(output.getError()).isNull();
+
+        // the total count keeps the simple collation, only the filtered pipeline uses the collation of the search
+        input.getColumn("label").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("order3", false)));
+
+        output = orderRepository.findAll(input, null, where("label").is("ORDER3"));
+        assertThat(output.getRecordsTotal()).isEqualTo(0);
+        assertThat(output.getData()).isEmpty();
+        assertThat(output.getError()).isNull();
+
+        output = orderRepository.findAll(input, null, where("id").lte(3));
+        assertThat(output.getData()).containsOnly(order3);
+        assertThat(output.getRecordsTotal()).isEqualTo(3);
+        assertThat(output.getRecordsFiltered()).isEqualTo(1);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void columnFilterRange() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setSearchType("id", DataTablesInput.SearchType.Long);
+        input.getColumn("id").ifPresent(column -> column.setSearch(new DataTablesInput.Search(" 2..3 ", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order2, order3);
+        assertThat(output.getError()).isNull();
+
+        input.getColumn("id").ifPresent(column -> column.setSearch(new DataTablesInput.Search(">=3", false)));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order3, order4);
+        assertThat(output.getError()).isNull();
+
+        input.getSearchConfiguration().setSearchType("id", DataTablesInput.SearchType.Double);
+        input.getColumn("id").ifPresent(column -> column.setSearch(new DataTablesInput.Search("< 1.5", false)));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order1);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void columnFilterIn() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setSearchType("label", DataTablesInput.SearchType.In);
+        input.getColumn("label").ifPresent(column -> column.setSearch(new DataTablesInput.Search("order1|order3", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order1, order3);
+        assertThat(output.getError()).isNull();
+
+        input.getSearchConfiguration().setSearchType("id", DataTablesInput.SearchType.In, DataTablesInput.SearchType.Integer);
+        input.getColumn("label").ifPresent(column -> column.setSearch(new DataTablesInput.Search("", false)));
+        input.getColumn("id").ifPresent(column -> column.setSearch(new DataTablesInput.Search("2, 4", false)));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order2, order4);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void ref_columnFilter_referenceKeyLimitExceeded() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setReferenceKeyLimit(1);
+        input.getColumn("product").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("product", false)));
+        input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.asc)));
+
+        // matches all four products, so the references are resolved with $lookup
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsSequence(order1, order2, order3, order4);
+        assertThat(output.getError()).isNull();
+
+        input.getColumn("product").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("product4", false)));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order4);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void ref_sort_referenceKeyLimitExceeded() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setReferenceKeyLimit(3);
+        input.setOrder(singletonList(new DataTablesInput.Order(6, DataTablesInput.Order.Direction.desc)));
+
+        // the product collection contains four products, so the references are resolved with $lookup (which is also
+        // the case for any limit without a DataTablesReferenceCache, see OrderRepositoryReferenceCacheTest)
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsSequence(order4, order2, order1, order3);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void ref_withoutDenormalizationListener() {
+        // without the listener, there are no snapshots, and the references are resolved
+        assertThat(mongoOperations.count(query(where("user_snapshot").exists(true)), Order.class)).isEqualTo(0);
+
+        DataTablesInput input = getDefaultInput();
+        input.setSearch(new DataTablesInput.Search("FName", false));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order4);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void ref_manualReference() {
+        DataTablesInput input = getDefaultInput();
+        input.getColumns().add(createColumn("productIds", true, true));
+        input.setColumns(input.getColumns());
+        input.getSearchConfiguration().addManualRefConfiguration("productIds", "product", "_id",
+                singletonList("label"), "label");
+        input.getColumn("productIds").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("product1", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order1, order3);
+        assertThat(output.getError()).isNull();
+
+        input.getColumn("productIds").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("product3", false)));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order3);
+        assertThat(output.getError()).isNull();
+
+        // resolved with $lookup on the array of ids
+        input.getSearchConfiguration().setReferenceKeyLimit(0);
+        input.setOrder(singletonList(new DataTablesInput.Order(10, DataTablesInput.Order.Direction.asc)));
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getData()).containsOnly(order3);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void ref_manualReference_excludedColumn() {
+        DataTablesInput input = getDefaultInput();
+        input.getColumns().add(createColumn("productIds", true, true));
+        input.getSearchConfiguration().addManualRefConfiguration("productIds", "product", "_id",
+                singletonList("label"), "label");
+        input.getSearchConfiguration().getExcludedColumns().add("createdAt");
+        // resolved with $lookup, which does not project the documents
+        input.getSearchConfiguration().setReferenceKeyLimit(0);
+        input.getColumn("productIds").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("product1", false)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getData()).extracting(Order::getId).containsOnly(order1.getId(), order3.getId());
+        assertThat(output.getData()).extracting(Order::getCreatedAt).containsOnlyNulls();
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void batch() {
+        DataTablesInput enabledInput = getDefaultInput();
+        DataTablesInput orderedInput = getDefaultInput();
+        orderedInput.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.desc)));
+        DataTablesInput searchInput = getDefaultInput();
+        searchInput.setSearch(new DataTablesInput.Search("order1", false));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<DataTablesOutput<?>> outputs = new DataTablesBatchExecutor(executor).execute(asList(
+                    DataTablesBatchExecutor.request(orderRepository, enabledInput, null, where("isEnabled").is(true)),
+                    DataTablesBatchExecutor.request(orderRepository, orderedInput),
+                    DataTablesBatchExecutor.request(orderRepository, searchInput)));
+
+            assertThat(outputs).hasSize(3);
+            assertThat(outputs.get(0).getData()).containsOnly(order1, order2);
+            assertThat(outputs.get(0).getRecordsTotal()).isEqualTo(2);
+            assertThat(outputs.get(1).getData()).containsSequence(order4, order3, order2, order1);
+            assertThat(outputs.get(1).getRecordsTotal()).isEqualTo(4);
+            assertThat(outputs.get(2).getData()).containsOnly(order1);
+            assertThat(outputs.get(2).getRecordsTotal()).isEqualTo(4);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void inputNotModified() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().getExcludedColumns().add("createdAt");
+        input.getColumn("id").ifPresent(column -> column.setSearch(new DataTablesInput.Search("1..4", false)));
+        // the order refers to the "product" column by its index in the input, which still contains "createdAt"
+        input.setOrder(singletonList(new DataTablesInput.Order(6, DataTablesInput.Order.Direction.desc)));
+
+        for (int i = 0; i < 2; i++) {
+            DataTablesOutput<Order> output = orderRepository.findAll(input);
+            assertThat(output.getData()).containsSequence(order4, order2, order1, order3);
+            assertThat(output.getError()).isNull();
+        }
+
+        assertThat(input.getColumns()).hasSize(10);
+        assertThat(input.getColumn("createdAt")).isPresent();
+        assertThat(input.getColumn("id")).isPresent();
+        assertThat(input.getSearchConfiguration().getColumnSearchConfiguration()).containsKeys("id", "product");
+    }
+
+    @Test
+    public void resultType() {
+        DataTablesInput input = getDefaultInput();
+        input.setSearch(new DataTablesInput.Search("order2", false));
+
+        DataTablesOutput<OrderSummary> output = orderRepository.findAll(input, OrderSummary.class);
+        assertThat(output.getData()).hasSize(1);
+        assertThat(output.getData().get(0).getId()).isEqualTo(2);
+        assertThat(output.getData().get(0).getLabel()).isEqualTo("order2");
+        assertThat(output.getData().get(0).isEnabled()).isTrue();
+        assertThat(output.getRecordsFiltered()).isEqualTo(1);
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void interfaceProjection() {
+        DataTablesInput input = getDefaultInput();
+        input.setSearch(new DataTablesInput.Search("product2", false));
+
+        DataTablesOutput<OrderLabel> output = orderRepository.findAll(input, OrderLabel.class);
+        assertThat(output.getData()).hasSize(1);
+        assertThat(output.getData().get(0).getId()).isEqualTo(2);
+        assertThat(output.getData().get(0).getLabel()).isEqualTo("order2");
+        assertThat(output.getError()).isNull();
+    }
+
+    @Test
+    public void readPreference() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setReadPreference(ReadPreference.secondaryPreferred(90, TimeUnit.SECONDS));
+        input.getSearchConfiguration().setCountReadPreference(ReadPreference.primaryPreferred());
+        input.getColumn("label").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("order[12]", true)));
+        input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.desc)));
+
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getError()).isNull();
+        assertThat(output.getRecordsTotal()).isEqualTo(4);
+        assertThat(output.getRecordsFiltered()).isEqualTo(2);
+        assertThat(output.getData()).containsExactly(order2, order1);
+
+        // streamed while it is read
+        input.setSessionId("session3");
+        output = orderRepository.findAll(input);
+        assertThat(output.getError()).isNull();
+        assertThat(output.getData()).containsExactly(order2, order1);
+    }
+
+    @Test
+    public void matchesBeforeLookup() {
+        DataTablesInput input = getDefaultInput();
+        input.getSearchConfiguration().setReferenceKeyLimit(1);
+        input.getColumn("isEnabled").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("true", false)));
+        input.getColumn("product").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("product", false)));
+        input.setOrder(asList(
+                new DataTablesInput.Order(6, DataTablesInput.Order.Direction.desc),
+                new DataTablesInput.Order(8, DataTablesInput.Order.Direction.asc)));
+
+        // the match on isEnabled precedes the $lookup of the products, which the search and the sort share
+        DataTablesOutput<Order> output = orderRepository.findAll(input);
+        assertThat(output.getError()).isNull();
+        assertThat(output.getRecordsFiltered()).isEqualTo(2);
+        assertThat(output.getData()).containsExactly(order2, order1);
+
+        // the excluded columns are projected after the page, as the date columns are not searched
+        input.getColumn("product").ifPresent(column ->
+                column.setSearch(new DataTablesInput.Search("", false)));
+        input.getSearchConfiguration().getExcludedColumns().add("label");
+        input.setOrder(singletonList(new DataTablesInput.Order(0, DataTablesInput.Order.Direction.desc)));
+        input.setLength(1);
+
+        output = orderRepository.findAll(input);
+        assertThat(output.getError()).isNull();
+        assertThat(output.getRecordsFiltered()).isEqualTo(2);
+        assertThat(output.getData()).hasSize(1);
+        assertThat(output.getData().get(0).getId()).isEqualTo(order2.getId());
+        assertThat(output.getData().get(0).getLabel()).isNull();
+    }
+
 }
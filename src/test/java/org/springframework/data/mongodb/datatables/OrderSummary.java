@@ -0,0 +1,16 @@
+package org.springframework.data.mongodb.datatables;
+
+import lombok.Data;
+
+/**
+ * A read model of {@link Order} with some of its fields.
+ */
+@Data
+public class OrderSummary {
+
+    private long id;
+
+    private String label;
+
+    private boolean isEnabled;
+}
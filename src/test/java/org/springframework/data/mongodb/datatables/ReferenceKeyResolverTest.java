@@ -0,0 +1,55 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReferenceKeyResolverTest {
+
+    private final List<Document> products = asList(
+            new Document("_id", 1).append("label", "Product 1").append("isEnabled", true),
+            new Document("_id", 2).append("label", "Crème Brûlée").append("isEnabled", false),
+            new Document("_id", 3).append("label", "product 3").append("tags", asList("red", "blue")));
+
+    @Test
+    public void filterKeys() {
+        DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = createSearchConfig("label");
+
+        assertThat(filter(searchConfig, new DataTablesInput.Search(" PRODUCT ", false), 10)).containsExactly(1, 3);
+        assertThat(filter(searchConfig, new DataTablesInput.Search("crème", false), 10)).containsExactly(2);
+        assertThat(filter(searchConfig, new DataTablesInput.Search("^Product", true), 10)).containsExactly(1);
+        assertThat(filter(searchConfig, new DataTablesInput.Search("none", false), 10)).isEmpty();
+    }
+
+    @Test
+    public void filterKeys_booleanAndArray() {
+        assertThat(filter(createSearchConfig("isEnabled"), new DataTablesInput.Search("false", false), 10)).containsExactly(2);
+        assertThat(filter(createSearchConfig("tags"), new DataTablesInput.Search("blu", false), 10)).containsExactly(3);
+    }
+
+    @Test
+    public void filterKeys_limitExceeded() {
+        DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = createSearchConfig("label");
+
+        assertThat(ReferenceKeyResolver.filterKeys(products, searchConfig, new DataTablesInput.Search("product", false), 1)).isEmpty();
+        assertThat(ReferenceKeyResolver.filterKeys(products, searchConfig, new DataTablesInput.Search("product", false), 2)).isPresent();
+    }
+
+    private List<Object> filter(DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig,
+                                DataTablesInput.Search search, int limit) {
+        return ReferenceKeyResolver.filterKeys(products, searchConfig, search, limit).orElseThrow(AssertionError::new);
+    }
+
+    private static DataTablesInput.SearchConfiguration.ColumnSearchConfiguration createSearchConfig(String column) {
+        DataTablesInput.SearchConfiguration.ColumnSearchConfiguration searchConfig = new DataTablesInput.SearchConfiguration.ColumnSearchConfiguration();
+        searchConfig.setReference(true);
+        searchConfig.setReferenceCollection("product");
+        searchConfig.setReferenceColumns(singletonList(column));
+        return searchConfig;
+    }
+}
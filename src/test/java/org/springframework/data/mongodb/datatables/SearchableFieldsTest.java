@@ -0,0 +1,32 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchableFieldsTest {
+
+    @Test
+    public void normalizedField() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+
+        assertThat(SearchableFields.normalizedField(mappingContext, Customer.class, "name")).isEqualTo("name_normalized");
+        assertThat(SearchableFields.normalizedField(mappingContext, Customer.class, "mail")).isEqualTo("email_normalized");
+    }
+
+    @Test
+    public void normalize() {
+        assertThat(SearchableFields.normalize("Crème Brûlée")).isEqualTo("creme brulee");
+    }
+
+    private static class Customer {
+        @DataTablesSearchable(normalized = true)
+        private String name;
+
+        @Field("email")
+        @DataTablesSearchable(normalized = true)
+        private String mail;
+    }
+}
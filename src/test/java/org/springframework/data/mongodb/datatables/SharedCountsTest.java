@@ -0,0 +1,39 @@
+package org.springframework.data.mongodb.datatables;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class SharedCountsTest {
+
+    private enum Status {
+        OPEN
+    }
+
+    @Test
+    public void sharedWithinScope() {
+        AtomicInteger counts = new AtomicInteger();
+        long count = new SharedCounts().run(() -> {
+            SharedCounts.count("order", where("label").is("order1"), () -> (long) counts.incrementAndGet());
+            return SharedCounts.count("order", where("label").is("order1"), () -> (long) counts.incrementAndGet());
+        });
+
+        assertThat(count).isEqualTo(1);
+        assertThat(counts).hasValue(1);
+    }
+
+    @Test
+    public void unmappedValuesAreNotShared() {
+        AtomicInteger counts = new AtomicInteger();
+        long count = new SharedCounts().run(() -> {
+            SharedCounts.count("order", where("status").is(Status.OPEN), () -> (long) counts.incrementAndGet());
+            return SharedCounts.count("order", where("status").is(Status.OPEN), () -> (long) counts.incrementAndGet());
+        });
+
+        assertThat(count).isEqualTo(2);
+        assertThat(counts).hasValue(2);
+    }
+}